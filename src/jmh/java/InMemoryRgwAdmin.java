@@ -0,0 +1,47 @@
+import com.google.gson.Gson;
+import org.twonote.rgwadmin4j.RgwAdmin;
+import org.twonote.rgwadmin4j.model.Quota;
+import org.twonote.rgwadmin4j.model.User;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process RGW admin stand-in for benchmarks. Answers user info, user quota and user modification from memory,
+ * every other admin call fails with {@link UnsupportedOperationException}.
+ */
+public class InMemoryRgwAdmin {
+    private static final Gson GSON = new Gson();
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+
+    public void addUser(String userId) {
+        users.put(userId, GSON.fromJson("{\"user_id\":\"" + userId + "\",\"display_name\":\"" + userId
+            + "\",\"email\":\"\",\"max_buckets\":1000,\"keys\":[],\"caps\":[]}", User.class));
+    }
+
+    public RgwAdmin asRgwAdmin() {
+        return (RgwAdmin) Proxy.newProxyInstance(RgwAdmin.class.getClassLoader(), new Class<?>[]{RgwAdmin.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getUserInfo":
+                        return Optional.ofNullable(users.get((String) args[0]));
+                    case "getUserQuota":
+                        return Optional.of(GSON.fromJson("{\"enabled\":false,\"max_objects\":-1,\"max_size_kb\":-1}",
+                            Quota.class));
+                    case "modifyUser":
+                        return users.get((String) args[0]);
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "InMemoryRgwAdmin";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
@@ -0,0 +1,305 @@
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsResult;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-process S3 stand-in for benchmarks. Implements only the calls S3Client makes for put, get, list and delete,
+ * keeping every object in memory, so results do not depend on a cluster or the network.
+ */
+public class InMemoryS3 extends AbstractAmazonS3 {
+    private static final int MAX_KEYS = 1000;
+
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, StoredObject>> buckets =
+        new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    public void seed(String bucketName, String key, byte[] data) {
+        getBucketObjects(bucketName).put(key, new StoredObject(data, new ObjectMetadata()));
+    }
+
+    @Override
+    public Bucket createBucket(String bucketName) {
+        buckets.putIfAbsent(bucketName, new ConcurrentSkipListMap<>());
+        return new Bucket(bucketName);
+    }
+
+    @Override
+    public boolean doesBucketExistV2(String bucketName) {
+        return buckets.containsKey(bucketName);
+    }
+
+    @Override
+    public List<Bucket> listBuckets() {
+        return buckets.keySet().stream().sorted().map(Bucket::new).collect(Collectors.toList());
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest request) {
+        byte[] data = request.getFile() != null ? readFile(request.getFile()) : readStream(request.getInputStream());
+        ObjectMetadata metadata = request.getMetadata() == null ? new ObjectMetadata() : request.getMetadata().clone();
+        StoredObject object = new StoredObject(data, metadata);
+        getBucketObjects(request.getBucketName()).put(request.getKey(), object);
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(object.metadata.getETag());
+        return result;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        byte[] data;
+        if (request.getFile() != null) {
+            data = new byte[(int) request.getPartSize()];
+            try (RandomAccessFile file = new RandomAccessFile(request.getFile(), "r")) {
+                file.seek(request.getFileOffset());
+                file.readFully(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            data = readStream(request.getInputStream());
+        }
+        uploads.get(request.getUploadId()).put(request.getPartNumber(), data);
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(BinaryUtils.toHex(Md5Utils.computeMD5Hash(data)));
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        NavigableMap<Integer, byte[]> parts = uploads.remove(request.getUploadId());
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (PartETag partETag : request.getPartETags()) {
+            data.writeBytes(parts.get(partETag.getPartNumber()));
+        }
+        StoredObject object = new StoredObject(data.toByteArray(), new ObjectMetadata());
+        getBucketObjects(request.getBucketName()).put(request.getKey(), object);
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setETag(object.metadata.getETag());
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.getUploadId());
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+        return getStoredObject(bucketName, key).metadata.clone();
+    }
+
+    @Override
+    public S3Object getObject(String bucketName, String key) {
+        return getObject(new GetObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        StoredObject stored = getStoredObject(request.getBucketName(), request.getKey());
+        if (!request.getMatchingETagConstraints().isEmpty()
+            && !request.getMatchingETagConstraints().contains(stored.metadata.getETag())) {
+            return null;
+        }
+        int start = 0;
+        int end = stored.data.length - 1;
+        if (request.getRange() != null) {
+            start = (int) request.getRange()[0];
+            end = (int) Math.min(request.getRange()[1], end);
+        }
+        ObjectMetadata metadata = stored.metadata.clone();
+        metadata.setContentLength(end - start + 1);
+        S3Object object = new S3Object();
+        object.setBucketName(request.getBucketName());
+        object.setKey(request.getKey());
+        object.setObjectMetadata(metadata);
+        object.setObjectContent(new S3ObjectInputStream(
+            new ByteArrayInputStream(stored.data, start, end - start + 1), null));
+        return object;
+    }
+
+    @Override
+    public ObjectMetadata getObject(GetObjectRequest request, File destinationFile) {
+        S3Object object = getObject(request);
+        if (object == null) {
+            return null;
+        }
+        try (InputStream input = object.getObjectContent()) {
+            Files.copy(input, destinationFile.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return object.getObjectMetadata();
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+        NavigableMap<String, StoredObject> objects = getBucketObjects(request.getBucketName());
+        String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+        String after = request.getContinuationToken() != null ? request.getContinuationToken()
+            : request.getStartAfter();
+        if (after == null || after.compareTo(prefix) < 0) {
+            objects = objects.tailMap(prefix, true);
+        } else {
+            objects = objects.tailMap(after, false);
+        }
+        int maxKeys = request.getMaxKeys() == null ? MAX_KEYS : request.getMaxKeys();
+
+        ListObjectsV2Result result = new ListObjectsV2Result();
+        result.setBucketName(request.getBucketName());
+        result.setPrefix(request.getPrefix());
+        result.setDelimiter(request.getDelimiter());
+        int count = 0;
+        String lastKey = null;
+        for (Map.Entry<String, StoredObject> entry : objects.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (count == maxKeys) {
+                result.setTruncated(true);
+                result.setNextContinuationToken(lastKey);
+                break;
+            }
+            lastKey = key;
+            int delimiterIndex = request.getDelimiter() == null ? -1
+                : key.indexOf(request.getDelimiter(), prefix.length());
+            if (delimiterIndex >= 0) {
+                String commonPrefix = key.substring(0, delimiterIndex + request.getDelimiter().length());
+                if (!result.getCommonPrefixes().contains(commonPrefix)) {
+                    result.getCommonPrefixes().add(commonPrefix);
+                    count++;
+                }
+                continue;
+            }
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName(request.getBucketName());
+            summary.setKey(key);
+            summary.setSize(entry.getValue().data.length);
+            summary.setETag(entry.getValue().metadata.getETag());
+            summary.setLastModified(entry.getValue().metadata.getLastModified());
+            result.getObjectSummaries().add(summary);
+            count++;
+        }
+        result.setKeyCount(count);
+        return result;
+    }
+
+    @Override
+    public void deleteObject(String bucketName, String key) {
+        getBucketObjects(bucketName).remove(key);
+    }
+
+    @Override
+    public DeleteObjectsResult deleteObjects(DeleteObjectsRequest request) {
+        List<DeleteObjectsResult.DeletedObject> deleted = new ArrayList<>();
+        request.getKeys().forEach(key -> {
+            getBucketObjects(request.getBucketName()).remove(key.getKey());
+            DeleteObjectsResult.DeletedObject deletedObject = new DeleteObjectsResult.DeletedObject();
+            deletedObject.setKey(key.getKey());
+            deleted.add(deletedObject);
+        });
+        return new DeleteObjectsResult(request.getQuiet() ? new ArrayList<>() : deleted);
+    }
+
+    private ConcurrentSkipListMap<String, StoredObject> getBucketObjects(String bucketName) {
+        ConcurrentSkipListMap<String, StoredObject> objects = buckets.get(bucketName);
+        if (objects == null) {
+            throw notFound("NoSuchBucket", "Bucket \"" + bucketName + "\" does not exist");
+        }
+        return objects;
+    }
+
+    private StoredObject getStoredObject(String bucketName, String key) {
+        StoredObject object = getBucketObjects(bucketName).get(key);
+        if (object == null) {
+            throw notFound("NoSuchKey", "Object \"" + key + "\" does not exist");
+        }
+        return object;
+    }
+
+    private static AmazonS3Exception notFound(String code, String message) {
+        AmazonS3Exception exception = new AmazonS3Exception(message);
+        exception.setStatusCode(404);
+        exception.setErrorCode(code);
+        return exception;
+    }
+
+    private static byte[] readFile(File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readStream(InputStream input) {
+        try (InputStream in = input) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class StoredObject {
+        private final byte[] data;
+        private final ObjectMetadata metadata;
+
+        StoredObject(byte[] data, ObjectMetadata metadata) {
+            this.data = data;
+            this.metadata = metadata;
+            metadata.setContentLength(data.length);
+            metadata.setHeader("ETag", BinaryUtils.toHex(Md5Utils.computeMD5Hash(data)));
+            metadata.setLastModified(new Date());
+        }
+    }
+}
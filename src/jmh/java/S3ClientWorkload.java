@@ -0,0 +1,122 @@
+import benchmark.ClientWorkload;
+import com.amazonaws.services.s3.model.S3Object;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs S3Client and RgwAdminClient against {@link InMemoryS3} and {@link InMemoryRgwAdmin}. The large object is
+ * above the multipart and ranged download thresholds, so it exercises the parallel transfer paths.
+ */
+public class S3ClientWorkload implements ClientWorkload {
+    private static final String BUCKET = "benchmark";
+    private static final String LIST_BUCKET = "benchmark-list";
+    private static final String USER = "benchmark-user";
+    private static final int SMALL_SIZE = 4 * 1024;
+    private static final int LARGE_SIZE = 80 * 1024 * 1024;
+    private static final int LIST_SIZE = 2500;
+
+    private final InMemoryS3 s3 = new InMemoryS3();
+    private final InMemoryRgwAdmin rgwAdmin = new InMemoryRgwAdmin();
+    private final byte[] buffer = new byte[64 * 1024];
+    private S3Client s3Client;
+    private RgwAdminClient rgwAdminClient;
+    private File directory;
+    private File smallFile;
+    private File largeFile;
+    private File downloadFile;
+    private byte[] smallData;
+
+    @Override
+    public void setUp() throws IOException {
+        s3Client = new S3Client(s3);
+        rgwAdmin.addUser(USER);
+        rgwAdminClient = new RgwAdminClient(rgwAdmin.asRgwAdmin());
+
+        directory = Files.createTempDirectory("s3client-benchmark").toFile();
+        Random random = new Random(42);
+        smallData = new byte[SMALL_SIZE];
+        random.nextBytes(smallData);
+        byte[] largeData = new byte[LARGE_SIZE];
+        random.nextBytes(largeData);
+        smallFile = new File(directory, "small.bin");
+        largeFile = new File(directory, "large.bin");
+        downloadFile = new File(directory, "download.bin");
+        Files.write(smallFile.toPath(), smallData);
+        Files.write(largeFile.toPath(), largeData);
+
+        s3Client.createBucket(BUCKET);
+        s3Client.createBucket(LIST_BUCKET);
+        s3Client.addObjectToBucketMeta(BUCKET, smallFile);
+        s3Client.addObjectToBucketMeta(BUCKET, largeFile);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            s3.seed(LIST_BUCKET, String.format("object-%06d", i), smallData);
+        }
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Override
+    public Object putSmall() throws IOException {
+        return s3Client.addObjectToBucketMeta(BUCKET, smallFile);
+    }
+
+    @Override
+    public Object putLarge() throws IOException {
+        return s3Client.addObjectToBucketMeta(BUCKET, largeFile);
+    }
+
+    @Override
+    public long getSmall() throws IOException {
+        long total = 0;
+        S3Object object = s3Client.getObjectFromBucket(BUCKET, smallFile.getName());
+        try (InputStream input = object.getObjectContent()) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public long getLarge() throws IOException {
+        s3Client.saveObjectToFile(BUCKET, largeFile.getName(), downloadFile.getPath());
+        return downloadFile.length();
+    }
+
+    @Override
+    public long list() {
+        return s3Client.getBucketObjectListing(LIST_BUCKET).count();
+    }
+
+    @Override
+    public void deleteSmall() {
+        s3.seed(BUCKET, "delete.bin", smallData);
+        s3Client.removeObjectFromBucket(BUCKET, "delete.bin");
+    }
+
+    @Override
+    public Object userLookupCached() {
+        return rgwAdminClient.getUserInfo(USER);
+    }
+
+    @Override
+    public Object userLookupUncached() {
+        rgwAdminClient.invalidateUser(USER);
+        return rgwAdminClient.getUserInfo(USER);
+    }
+
+    @Override
+    public Object userModify() {
+        return rgwAdminClient.modifyUser(USER, Map.of("display-name", USER));
+    }
+}
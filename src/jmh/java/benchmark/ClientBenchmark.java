@@ -0,0 +1,89 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of S3Client and RgwAdminClient operations against in-process stand-ins. Run with
+ * {@code mvn -Pjmh compile exec:exec}, allocation per operation is reported by the gc profiler enabled in the
+ * profile's default arguments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientBenchmark {
+    private static final String WORKLOAD_CLASS = "S3ClientWorkload";
+
+    private ClientWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = (ClientWorkload) Class.forName(WORKLOAD_CLASS).getDeclaredConstructor().newInstance();
+        workload.setUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public Object putSmall() throws Exception {
+        return workload.putSmall();
+    }
+
+    @Benchmark
+    public Object putLarge() throws Exception {
+        return workload.putLarge();
+    }
+
+    @Benchmark
+    public long getSmall() throws Exception {
+        return workload.getSmall();
+    }
+
+    @Benchmark
+    public long getLarge() throws Exception {
+        return workload.getLarge();
+    }
+
+    @Benchmark
+    public long list() {
+        return workload.list();
+    }
+
+    @Benchmark
+    public void deleteSmall() {
+        workload.deleteSmall();
+    }
+
+    @Benchmark
+    public Object userLookupCached() {
+        return workload.userLookupCached();
+    }
+
+    @Benchmark
+    public Object userLookupUncached() {
+        return workload.userLookupUncached();
+    }
+
+    @Benchmark
+    public Object userModify() {
+        return workload.userModify();
+    }
+}
@@ -0,0 +1,29 @@
+package benchmark;
+
+/**
+ * Operations measured by {@link ClientBenchmark}. JMH refuses benchmarks in the default package, where S3Client
+ * and RgwAdminClient live, so the benchmark drives them through this interface instead.
+ */
+public interface ClientWorkload {
+    void setUp() throws Exception;
+
+    void tearDown() throws Exception;
+
+    Object putSmall() throws Exception;
+
+    Object putLarge() throws Exception;
+
+    long getSmall() throws Exception;
+
+    long getLarge() throws Exception;
+
+    long list();
+
+    void deleteSmall();
+
+    Object userLookupCached();
+
+    Object userLookupUncached();
+
+    Object userModify();
+}
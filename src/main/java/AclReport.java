@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of a bulk ACL change: how many buckets or objects were updated or already matched, and every one that
+ * failed.
+ */
+public class AclReport {
+    private final String target;
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final ConcurrentLinkedQueue<PurgeReport.Failure> failures = new ConcurrentLinkedQueue<>();
+
+    public AclReport(String target) {
+        this.target = target;
+    }
+
+    long addUpdated() {
+        updated.incrementAndGet();
+        return processed.incrementAndGet();
+    }
+
+    long addUnchanged() {
+        unchanged.incrementAndGet();
+        return processed.incrementAndGet();
+    }
+
+    long addFailure(String name, String code, String message) {
+        failures.add(new PurgeReport.Failure(name, null, code, message));
+        return processed.incrementAndGet();
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public long getUpdated() {
+        return updated.get();
+    }
+
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public List<PurgeReport.Failure> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public void printFailures() {
+        failures.forEach(failure -> System.err.println("\t" + failure));
+    }
+
+    @Override
+    public String toString() {
+        return target + ": " + updated.get() + " updated, " + unchanged.get() + " unchanged, " + failures.size()
+            + " failed";
+    }
+}
@@ -0,0 +1,317 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.timers.client.ClientExecutionTimeoutException;
+import com.amazonaws.retry.RetryUtils;
+import org.twonote.rgwadmin4j.impl.RgwAdminException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD limit on the number of requests in flight to the cluster, shared by every client of the same kind. The
+ * limit grows by one per limit's worth of successful requests while it is in use, and is halved when RGW
+ * throttles (503, SlowDown, 429), a request times out, or the latency of an operation rises well above its usual
+ * level. Only one decrease is applied per round trip, since requests sent before a decrease keep reporting the
+ * same congestion for a while. SDK clients retry throttled requests internally while the slot is held, so they
+ * report every throttled attempt through {@link #newRequestHandler()} instead of only the final failure. Calls
+ * that move object data take as long as their payload needs, so they are left out of the latency checks.
+ *
+ * <p>Callers beyond the limit wait for a slot, so bulk jobs and async calls slow down together instead of
+ * piling more requests onto a struggling gateway.
+ */
+public class AdaptiveLimiter implements AdaptiveLimiterMBean {
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_INITIAL_LIMIT = 32;
+    public static final int DEFAULT_MAX_LIMIT = 512;
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_WEIGHT = 0.01;
+    private static final double RECENT_WEIGHT = 0.2;
+    private static final long MIN_DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final Map<String, AdaptiveLimiter> LIMITERS = new ConcurrentHashMap<>();
+    private static final Set<String> DATA_OPERATIONS =
+        Set.of("putObject", "uploadPart", "getObject", "copyObject", "copyPart");
+    private static final ThreadLocal<Boolean> ATTEMPT_REPORTED = ThreadLocal.withInitial(() -> false);
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotReleased = lock.newCondition();
+    private final Map<String, LatencyTracker> latencies = new HashMap<>();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong latencySpikes = new AtomicLong();
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+    private double roundTripNanos;
+
+    public AdaptiveLimiter(String name, int minLimit, int initialLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * @return the limiter shared by every client of the given kind, e.g. "s3"
+     */
+    public static AdaptiveLimiter get(String name) {
+        return LIMITERS.computeIfAbsent(name, key -> {
+            AdaptiveLimiter limiter = new AdaptiveLimiter(name, DEFAULT_MIN_LIMIT, DEFAULT_INITIAL_LIMIT,
+                DEFAULT_MAX_LIMIT);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(limiter,
+                    new ObjectName("radosgw.client:type=ConcurrencyLimiter,client=" + name));
+            } catch (JMException e) {
+                System.err.println("Unable to register concurrency limiter of " + name + ": " + e.getMessage());
+            }
+            return limiter;
+        });
+    }
+
+    public static Collection<AdaptiveLimiter> getLimiters() {
+        return new ArrayList<>(LIMITERS.values());
+    }
+
+    /**
+     * Wraps the target so that every interface call holds a slot of the shared limiter of the given kind
+     *
+     * @param type   interface to wrap
+     * @param name   kind of client, calls of all targets with the same name share one limit
+     * @param target instance the calls are forwarded to
+     * @return limited instance of the interface
+     */
+    public static <T> T limit(Class<T> type, String name, T target) {
+        AdaptiveLimiter limiter = get(name);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            limiter.acquire();
+            ATTEMPT_REPORTED.set(false);
+            long start = System.nanoTime();
+            boolean released = false;
+            try {
+                Object result = method.invoke(target, args);
+                released = true;
+                limiter.onSuccess(method.getName(), System.nanoTime() - start);
+                return result;
+            } catch (InvocationTargetException e) {
+                released = true;
+                if (isCongestion(e.getCause()) && !ATTEMPT_REPORTED.get()) {
+                    limiter.onCongestion();
+                } else {
+                    limiter.release();
+                }
+                throw e.getCause();
+            } finally {
+                if (!released) {
+                    limiter.release();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Handler for SDK clients whose calls go through this limiter, it reports every attempt that was throttled
+     * or timed out, including the ones the SDK retries before the call returns
+     */
+    public RequestHandler2 newRequestHandler() {
+        return new RequestHandler2() {
+            @Override
+            public void afterAttempt(HandlerAfterAttemptContext context) {
+                if (context.getException() != null && isCongestion(context.getException())) {
+                    ATTEMPT_REPORTED.set(true);
+                    onThrottledAttempt();
+                }
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Waits until fewer requests than the limit are in flight and takes a slot
+     */
+    public void acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                slotReleased.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Interrupted while waiting for a request slot");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot without any feedback, for requests that failed for reasons unrelated to load
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(String operation, long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            boolean dataOperation = DATA_OPERATIONS.contains(operation);
+            if (!dataOperation) {
+                roundTripNanos = roundTripNanos == 0 ? latencyNanos
+                    : roundTripNanos + RECENT_WEIGHT * (latencyNanos - roundTripNanos);
+            }
+            if (!dataOperation
+                && latencies.computeIfAbsent(operation, key -> new LatencyTracker()).isSpike(latencyNanos)) {
+                if (decrease()) {
+                    latencySpikes.incrementAndGet();
+                }
+            } else if (inFlight + 1 >= limit / 2) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onCongestion() {
+        lock.lock();
+        try {
+            inFlight--;
+            throttled.incrementAndGet();
+            decrease();
+            slotReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Backs off for a throttled attempt of a call that still holds its slot, e.g. one the SDK is about to retry
+     */
+    public void onThrottledAttempt() {
+        lock.lock();
+        try {
+            throttled.incrementAndGet();
+            decrease();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    @Override
+    public long getLatencySpikes() {
+        return latencySpikes.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": limit " + getLimit() + ", " + getInFlight() + " in flight, " + throttled.get()
+            + " throttled, " + latencySpikes.get() + " latency spikes";
+    }
+
+    private boolean decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecrease < Math.max(MIN_DECREASE_INTERVAL_NANOS, (long) roundTripNanos)) {
+            return false;
+        }
+        lastDecrease = now;
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        return true;
+    }
+
+    private static boolean isCongestion(Throwable error) {
+        if (error instanceof AmazonServiceException) {
+            AmazonServiceException serviceError = (AmazonServiceException) error;
+            return serviceError.getStatusCode() == 503 || RetryUtils.isThrottlingException(serviceError);
+        }
+        if (error instanceof RgwAdminException) {
+            int status = ((RgwAdminException) error).status();
+            return status == 503 || status == 429;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException || cause instanceof ClientExecutionTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps a slow moving baseline and a fast moving recent average of one operation's latency, a spike is a
+     * recent average well above the baseline
+     */
+    private static class LatencyTracker {
+        private double baseline;
+        private double recent;
+
+        boolean isSpike(long latencyNanos) {
+            if (baseline == 0) {
+                baseline = latencyNanos;
+                recent = latencyNanos;
+                return false;
+            }
+            baseline += BASELINE_WEIGHT * (latencyNanos - baseline);
+            recent += RECENT_WEIGHT * (latencyNanos - recent);
+            return recent > baseline * LATENCY_TOLERANCE;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+public interface AdaptiveLimiterMBean {
+    int getLimit();
+
+    int getInFlight();
+
+    long getThrottled();
+
+    long getLatencySpikes();
+}
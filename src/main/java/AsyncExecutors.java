@@ -0,0 +1,69 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking client calls. On a JDK with virtual threads every task gets its own virtual thread, so
+ * thousands of in-flight requests park on a handful of carrier threads. Older JDKs get a bounded pool of daemon
+ * platform threads with an unbounded queue, so extra requests wait for a thread instead of creating one.
+ */
+public class AsyncExecutors {
+    public static final int DEFAULT_PLATFORM_THREADS = 64;
+
+    private AsyncExecutors() {
+    }
+
+    public static ExecutorService newDefaultExecutor() {
+        return newDefaultExecutor(DEFAULT_PLATFORM_THREADS);
+    }
+
+    /**
+     * @param platformThreads size of the fallback pool when virtual threads are not available
+     * @return a virtual thread per task executor if the running JDK supports it, a bounded platform pool otherwise
+     */
+    public static ExecutorService newDefaultExecutor(int platformThreads) {
+        ExecutorService executor = newVirtualThreadExecutor();
+        return executor != null ? executor : newPlatformExecutor(platformThreads);
+    }
+
+    /**
+     * @return a virtual thread per task executor, null when the running JDK has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    public static ExecutorService newPlatformExecutor(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new DaemonThreadFactory("s3-async"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
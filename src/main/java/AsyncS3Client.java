@@ -0,0 +1,187 @@
+import com.amazonaws.auth.policy.Action;
+import com.amazonaws.auth.policy.Policy;
+import com.amazonaws.services.s3.model.AccessControlList;
+import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.Permission;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Non-blocking facade over S3Client. Every call runs the matching S3Client method on the executor and completes
+ * the returned future with its result, or exceptionally with the exception it threw.
+ */
+public class AsyncS3Client implements AutoCloseable {
+    private final S3Client s3Client;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+
+    /**
+     * Runs calls on {@link AsyncExecutors#newDefaultExecutor()}, which is shut down by {@link #close()}
+     */
+    public AsyncS3Client(S3Client s3Client) {
+        this(s3Client, AsyncExecutors.newDefaultExecutor(), true);
+    }
+
+    /**
+     * Runs calls on the given executor, which stays owned by the caller
+     */
+    public AsyncS3Client(S3Client s3Client, Executor executor) {
+        this(s3Client, executor, false);
+    }
+
+    private AsyncS3Client(S3Client s3Client, Executor executor, boolean ownsExecutor) {
+        this.s3Client = s3Client;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public S3Client getS3Client() {
+        return s3Client;
+    }
+
+    /**
+     * Bucket Operations
+     */
+
+    public CompletableFuture<Bucket> createBucket(String bucketName) {
+        return supply(() -> s3Client.createBucket(bucketName));
+    }
+
+    public CompletableFuture<Boolean> doesBucketExist(String bucketName) {
+        return supply(() -> s3Client.doesBucketExist(bucketName));
+    }
+
+    public CompletableFuture<Bucket> getBucket(String bucketName) {
+        return supply(() -> s3Client.getBucket(bucketName));
+    }
+
+    public CompletableFuture<List<Bucket>> getBucketList() {
+        return supply(s3Client::getBucketList);
+    }
+
+    public CompletableFuture<Void> removeBucket(String bucketName) {
+        return run(() -> s3Client.removeBucket(bucketName));
+    }
+
+    public CompletableFuture<PurgeReport> removeNonEmptyBucket(String bucketName) {
+        return supply(() -> s3Client.removeNonEmptyBucket(bucketName));
+    }
+
+    /**
+     * Object Operations
+     */
+
+    public CompletableFuture<PutObjectResult> addObjectToBucket(String bucketName, File object) {
+        return supply(() -> s3Client.addObjectToBucket(bucketName, object));
+    }
+
+    public CompletableFuture<PutObjectResult> addObjectToBucket(String bucketName, String objectKey, File object) {
+        return supply(() -> s3Client.addObjectToBucket(bucketName, objectKey, object));
+    }
+
+    public CompletableFuture<PutObjectResult> addObjectToBucketMeta(String bucketName, File object) {
+        return supply(() -> s3Client.addObjectToBucketMeta(bucketName, object));
+    }
+
+    public CompletableFuture<S3Object> getObjectFromBucket(String bucketName, String objectName) {
+        return supply(() -> s3Client.getObjectFromBucket(bucketName, objectName));
+    }
+
+    public CompletableFuture<Void> removeObjectFromBucket(String bucketName, String objectKey) {
+        return run(() -> s3Client.removeObjectFromBucket(bucketName, objectKey));
+    }
+
+    public CompletableFuture<Void> saveObjectToFile(String bucketName, String objectKey, String destinyPath) {
+        return supply(() -> {
+            s3Client.saveObjectToFile(bucketName, objectKey, destinyPath);
+            return null;
+        });
+    }
+
+    /**
+     * ACL Operations
+     */
+
+    public CompletableFuture<AccessControlList> getBucketAcl(String bucketName) {
+        return supply(() -> s3Client.getBucketAcl(bucketName));
+    }
+
+    public CompletableFuture<Void> setBucketAcl(String bucketName, AccessControlList acl) {
+        return run(() -> s3Client.setBucketAcl(bucketName, acl));
+    }
+
+    /**
+     * @return future completed exceptionally when the ACL could not be read or written
+     */
+    public CompletableFuture<Void> grantPermission(String bucketName, String userId, String permissionName) {
+        return run(() -> s3Client.updateBucketAcl(bucketName,
+            BulkAclUpdater.grant(userId, Permission.valueOf(permissionName))));
+    }
+
+    /**
+     * @return future completed exceptionally when the ACL could not be read or written
+     */
+    public CompletableFuture<Void> revokeAllPermissions(String bucketName, String userId) {
+        return run(() -> s3Client.updateBucketAcl(bucketName, BulkAclUpdater.revokeAll(userId)));
+    }
+
+    /**
+     * Policy Operations
+     */
+
+    public CompletableFuture<Policy> getBucketPolicy(String bucketName) {
+        return supply(() -> s3Client.getBucketPolicy(bucketName));
+    }
+
+    public CompletableFuture<String> getBucketPolicyText(String bucketName) {
+        return supply(() -> s3Client.getBucketPolicyText(bucketName));
+    }
+
+    public CompletableFuture<Void> setBucketPolicy(String bucketName, String bucketPolicy) {
+        return run(() -> s3Client.setBucketPolicy(bucketName, bucketPolicy));
+    }
+
+    public CompletableFuture<Void> deleteBucketPolicy(String bucketName) {
+        return run(() -> s3Client.deleteBucketPolicy(bucketName));
+    }
+
+    public CompletableFuture<Boolean> updateBucketPolicy(String bucketName, String userId, String allowedIps,
+        List<Action> actions, String statementType) {
+        return supply(() -> s3Client.updateBucketPolicy(bucketName, userId, allowedIps, actions, statementType));
+    }
+
+    public CompletableFuture<Boolean> disableUserPolicyControl(String bucketName, String userId) {
+        return supply(() -> s3Client.disableUserPolicyControl(bucketName, userId));
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> run(Runnable call) {
+        return CompletableFuture.runAsync(call, executor);
+    }
+
+    private <T> CompletableFuture<T> supply(Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
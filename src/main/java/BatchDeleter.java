@@ -0,0 +1,151 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.VersionListing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Empties buckets with multi-object deletes. The calling thread keeps listing while up to {@code concurrency}
+ * batches of at most 1000 keys are being deleted in the background.
+ */
+public class BatchDeleter {
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    private final AmazonS3 client;
+    private final int concurrency;
+
+    public BatchDeleter(AmazonS3 client) {
+        this(client, DEFAULT_CONCURRENCY);
+    }
+
+    public BatchDeleter(AmazonS3 client, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.client = client;
+        this.concurrency = concurrency;
+    }
+
+    public PurgeReport deleteObjects(String bucketName) {
+        Pipeline pipeline = new Pipeline(bucketName);
+        try {
+            ObjectListingIterator pages = ObjectListingIterator.of(client, bucketName, null, null, null);
+            while (pages.hasNext()) {
+                pipeline.submit(pages.next().getObjectSummaries().stream()
+                    .map(summary -> new KeyVersion(summary.getKey()))
+                    .collect(Collectors.toList()));
+            }
+            return pipeline.await();
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    public PurgeReport deleteKeys(String bucketName, Collection<String> keys) {
+        Pipeline pipeline = new Pipeline(bucketName);
+        try {
+            pipeline.submit(keys.stream().map(KeyVersion::new).collect(Collectors.toList()));
+            return pipeline.await();
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    public PurgeReport deleteVersions(String bucketName) {
+        Pipeline pipeline = new Pipeline(bucketName);
+        try {
+            VersionListing listing = client.listVersions(new ListVersionsRequest().withBucketName(bucketName));
+            while (true) {
+                pipeline.submit(listing.getVersionSummaries().stream()
+                    .map(summary -> new KeyVersion(summary.getKey(), summary.getVersionId()))
+                    .collect(Collectors.toList()));
+                if (!listing.isTruncated()) {
+                    break;
+                }
+                listing = client.listNextBatchOfVersions(listing);
+            }
+            return pipeline.await();
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private class Pipeline {
+        private final String bucketName;
+        private final PurgeReport report;
+        private final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        private final Semaphore inFlight = new Semaphore(concurrency);
+
+        Pipeline(String bucketName) {
+            this.bucketName = bucketName;
+            this.report = new PurgeReport(bucketName);
+        }
+
+        void submit(List<KeyVersion> keys) {
+            for (int from = 0; from < keys.size(); from += MAX_BATCH_SIZE) {
+                List<KeyVersion> batch = new ArrayList<>(keys.subList(from, Math.min(from + MAX_BATCH_SIZE,
+                    keys.size())));
+                acquire(1);
+                executor.execute(() -> {
+                    try {
+                        delete(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+
+        PurgeReport await() {
+            acquire(concurrency);
+            inFlight.release(concurrency);
+            return report;
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+
+        private void delete(List<KeyVersion> batch) {
+            try {
+                client.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(batch).withQuiet(true));
+                report.addDeleted(batch.size());
+            } catch (MultiObjectDeleteException e) {
+                e.getErrors().forEach(error ->
+                    report.addFailure(error.getKey(), error.getVersionId(), error.getCode(), error.getMessage()));
+                report.addDeleted(batch.size() - e.getErrors().size());
+            } catch (AmazonServiceException e) {
+                batch.forEach(key ->
+                    report.addFailure(key.getKey(), key.getVersion(), e.getErrorCode(), e.getErrorMessage()));
+            } catch (SdkClientException e) {
+                batch.forEach(key -> report.addFailure(key.getKey(), key.getVersion(), "ClientError", e.getMessage()));
+            } catch (RuntimeException e) {
+                // anything else would end the pool thread silently and leave the batch out of the report
+                batch.forEach(key -> report.addFailure(key.getKey(), key.getVersion(), e.getClass().getSimpleName(),
+                    e.getMessage()));
+            }
+        }
+
+        private void acquire(int permits) {
+            try {
+                inFlight.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException("Purge of bucket \"" + bucketName + "\" was interrupted");
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Copies a bucket or a prefix into another bucket without the data leaving the cluster. Objects below 5 GB are
+ * copied with a single CopyObject, larger ones with a multipart upload whose parts are copied in parallel with
+ * ranged CopyPart requests. Metadata is kept and the ACL of every source object is applied to its copy.
+ */
+public class BucketCloner {
+    public static final long MAX_SINGLE_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+    public static final long DEFAULT_PART_SIZE = 512L * 1024 * 1024;
+    public static final int DEFAULT_CONCURRENCY = 16;
+    private static final int MAX_PARTS = 10000;
+
+    private final AmazonS3 client;
+    private final long partSize;
+    private final int concurrency;
+
+    public BucketCloner(AmazonS3 client) {
+        this(client, DEFAULT_PART_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    public BucketCloner(AmazonS3 client, long partSize, int concurrency) {
+        if (partSize > MAX_SINGLE_COPY_SIZE) {
+            throw new IllegalArgumentException("Part size must be at most " + MAX_SINGLE_COPY_SIZE + " bytes");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.client = client;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Copies every object under the source prefix, replacing the source prefix with the target prefix in the keys
+     *
+     * @param sourceBucketName bucket to copy from
+     * @param sourcePrefix     prefix to copy, empty for the whole bucket
+     * @param targetBucketName bucket to copy to, must exist
+     * @param targetPrefix     prefix the copies are stored under, empty to keep the source keys. Within the
+     *                         same bucket neither prefix may start with the other, since the listing would
+     *                         return the copies being written
+     * @throws IllegalArgumentException if the prefixes overlap within the same bucket
+     * @return counts of copied objects and bytes, and the keys that failed
+     */
+    public CloneReport clone(String sourceBucketName, String sourcePrefix, String targetBucketName,
+        String targetPrefix) {
+        String fromPrefix = sourcePrefix == null ? "" : sourcePrefix;
+        String toPrefix = targetPrefix == null ? "" : targetPrefix;
+        if (sourceBucketName.equals(targetBucketName)
+            && (fromPrefix.startsWith(toPrefix) || toPrefix.startsWith(fromPrefix))) {
+            throw new IllegalArgumentException("Source prefix \"" + fromPrefix + "\" and target prefix \""
+                + toPrefix + "\" overlap within bucket \"" + sourceBucketName + "\"");
+        }
+        CloneReport report = new CloneReport(sourceBucketName, targetBucketName);
+
+        // object copies wait on part copies, so parts get their own pool to never starve on object tasks
+        ExecutorService objectExecutor = Executors.newFixedThreadPool(concurrency);
+        ExecutorService partExecutor = Executors.newFixedThreadPool(concurrency);
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        ListObjectsV2Request request = new ListObjectsV2Request()
+            .withBucketName(sourceBucketName)
+            .withPrefix(fromPrefix);
+        try (Stream<S3ObjectSummary> objects = ObjectListingIterator.stream(client, request)) {
+            objects.forEach(summary -> {
+                String targetKey = toPrefix + summary.getKey().substring(fromPrefix.length());
+                acquire(inFlight, 1);
+                objectExecutor.execute(() -> {
+                    try {
+                        copyObject(summary, targetBucketName, targetKey, partExecutor, report);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+            acquire(inFlight, concurrency * 2);
+        } finally {
+            objectExecutor.shutdownNow();
+            partExecutor.shutdownNow();
+        }
+        return report;
+    }
+
+    private void copyObject(S3ObjectSummary summary, String targetBucketName, String targetKey,
+        ExecutorService partExecutor, CloneReport report) {
+        try {
+            AccessControlList acl = client.getObjectAcl(summary.getBucketName(), summary.getKey());
+            boolean copied;
+            if (summary.getSize() <= MAX_SINGLE_COPY_SIZE) {
+                copied = client.copyObject(new CopyObjectRequest(summary.getBucketName(), summary.getKey(),
+                    targetBucketName, targetKey)
+                    .withMatchingETagConstraint(summary.getETag())
+                    .withAccessControlList(acl)) != null;
+            } else {
+                copied = copyParts(summary, targetBucketName, targetKey, acl, partExecutor);
+            }
+            if (copied) {
+                report.addCopied(summary.getSize());
+            } else {
+                report.addFailure(summary.getKey(), "PreconditionFailed", "Object changed after it was listed");
+            }
+        } catch (AmazonServiceException e) {
+            report.addFailure(summary.getKey(), e.getErrorCode(), e.getErrorMessage());
+        } catch (SdkClientException e) {
+            report.addFailure(summary.getKey(), "ClientError", e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if the source no longer matched the listed ETag, the multipart upload is then aborted
+     */
+    private boolean copyParts(S3ObjectSummary summary, String targetBucketName, String targetKey,
+        AccessControlList acl, ExecutorService partExecutor) {
+        String sourceBucketName = summary.getBucketName();
+        String sourceKey = summary.getKey();
+        ObjectMetadata metadata = client.getObjectMetadata(sourceBucketName, sourceKey);
+        if (!summary.getETag().replace("\"", "").equals(metadata.getETag().replace("\"", ""))) {
+            return false;
+        }
+        long length = metadata.getContentLength();
+        long size = Math.max(partSize, (length + MAX_PARTS - 1) / MAX_PARTS);
+        String uploadId = client.initiateMultipartUpload(new InitiateMultipartUploadRequest(targetBucketName,
+            targetKey, getInitiateMetadata(metadata)).withAccessControlList(acl)).getUploadId();
+
+        try {
+            List<Future<PartETag>> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < length; offset += size, partNumber++) {
+                CopyPartRequest request = new CopyPartRequest()
+                    .withSourceBucketName(sourceBucketName)
+                    .withSourceKey(sourceKey)
+                    .withDestinationBucketName(targetBucketName)
+                    .withDestinationKey(targetKey)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withFirstByte(offset)
+                    .withLastByte(Math.min(offset + size, length) - 1)
+                    .withMatchingETagConstraint(metadata.getETag());
+                parts.add(partExecutor.submit(() -> {
+                    CopyPartResult result = client.copyPart(request);
+                    return result == null ? null : result.getPartETag();
+                }));
+            }
+
+            List<PartETag> partETags = new ArrayList<>(parts.size());
+            for (Future<PartETag> part : parts) {
+                partETags.add(part.get());
+            }
+            if (partETags.contains(null)) {
+                abort(targetBucketName, targetKey, uploadId);
+                return false;
+            }
+            client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(targetBucketName, targetKey, uploadId, partETags));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(targetBucketName, targetKey, uploadId);
+            throw new AbortedException("Copy of \"" + sourceKey + "\" was interrupted");
+        } catch (ExecutionException e) {
+            abort(targetBucketName, targetKey, uploadId);
+            if (e.getCause() instanceof SdkClientException) {
+                throw (SdkClientException) e.getCause();
+            }
+            throw new SdkClientException("Copy of \"" + sourceKey + "\" failed", e.getCause());
+        } catch (RuntimeException e) {
+            abort(targetBucketName, targetKey, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * CopyObject keeps every header of the source, so a multipart copy starts from the same set
+     */
+    private static ObjectMetadata getInitiateMetadata(ObjectMetadata metadata) {
+        ObjectMetadata initiateMetadata = new ObjectMetadata();
+        initiateMetadata.setUserMetadata(metadata.getUserMetadata());
+        if (metadata.getContentType() != null) {
+            initiateMetadata.setContentType(metadata.getContentType());
+        }
+        if (metadata.getContentEncoding() != null) {
+            initiateMetadata.setContentEncoding(metadata.getContentEncoding());
+        }
+        if (metadata.getContentDisposition() != null) {
+            initiateMetadata.setContentDisposition(metadata.getContentDisposition());
+        }
+        if (metadata.getContentLanguage() != null) {
+            initiateMetadata.setContentLanguage(metadata.getContentLanguage());
+        }
+        if (metadata.getCacheControl() != null) {
+            initiateMetadata.setCacheControl(metadata.getCacheControl());
+        }
+        if (metadata.getHttpExpiresDate() != null) {
+            initiateMetadata.setHttpExpiresDate(metadata.getHttpExpiresDate());
+        }
+        return initiateMetadata;
+    }
+
+    private void abort(String bucketName, String key, String uploadId) {
+        try {
+            client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (SdkClientException e) {
+            System.err.println("Unable to abort copy of \"" + key + "\": " + e.getMessage());
+        }
+    }
+
+    private static void acquire(Semaphore inFlight, int permits) {
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Clone was interrupted");
+        }
+    }
+}
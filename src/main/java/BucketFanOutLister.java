@@ -0,0 +1,170 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lists many buckets at once while handing the results to a single listener in bucket order. At most
+ * {@code parallelism} buckets are listed at the same time and each of them buffers at most
+ * {@code PAGES_PER_BUCKET} pages, so memory stays bounded no matter how many buckets or objects there are.
+ */
+public class BucketFanOutLister {
+    public static final int DEFAULT_PARALLELISM = 8;
+    private static final int PAGES_PER_BUCKET = 2;
+    private static final List<S3ObjectSummary> END = new ArrayList<>();
+
+    private final AmazonS3 client;
+    private final int parallelism;
+
+    public BucketFanOutLister(AmazonS3 client) {
+        this(client, DEFAULT_PARALLELISM);
+    }
+
+    public BucketFanOutLister(AmazonS3 client, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.client = client;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Lists every given bucket, calling the listener from the calling thread. Errors listing one bucket are
+     * reported through its result and do not stop the other buckets.
+     *
+     * @param bucketNames buckets to list, in the order they are reported
+     * @param listener    receives every bucket, its objects in key order and its result
+     * @return per-bucket results in bucket order
+     */
+    public List<Result> list(List<String> bucketNames, Listener listener) {
+        List<Slot> slots = new ArrayList<>(bucketNames.size());
+        bucketNames.forEach(bucketName -> slots.add(new Slot(bucketName)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (int i = 0; i < Math.min(parallelism, slots.size()); i++) {
+                executor.execute(slots.get(i));
+            }
+            List<Result> results = new ArrayList<>(slots.size());
+            for (int i = 0; i < slots.size(); i++) {
+                Slot slot = slots.get(i);
+                listener.onBucket(slot.bucketName);
+                for (List<S3ObjectSummary> page = slot.take(); page != END; page = slot.take()) {
+                    page.forEach(listener::onObject);
+                }
+                if (i + parallelism < slots.size()) {
+                    executor.execute(slots.get(i + parallelism));
+                }
+                Result result = slot.getResult();
+                listener.onComplete(result);
+                results.add(result);
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public interface Listener {
+        void onBucket(String bucketName);
+
+        void onObject(S3ObjectSummary summary);
+
+        void onComplete(Result result);
+    }
+
+    public static class Result {
+        private final String bucketName;
+        private final long objectCount;
+        private final long elapsedMillis;
+        private final Exception error;
+
+        Result(String bucketName, long objectCount, long elapsedMillis, Exception error) {
+            this.bucketName = bucketName;
+            this.objectCount = objectCount;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+
+        public String getBucketName() {
+            return bucketName;
+        }
+
+        public long getObjectCount() {
+            return objectCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Bucket \"" + bucketName + "\": " + objectCount + " objects in " + elapsedMillis + " ms"
+                + (error == null ? "" : ", failed: " + error.getMessage());
+        }
+    }
+
+    private class Slot implements Runnable {
+        private final String bucketName;
+        private final BlockingQueue<List<S3ObjectSummary>> pages = new ArrayBlockingQueue<>(PAGES_PER_BUCKET);
+        private volatile long objectCount;
+        private volatile long elapsedMillis;
+        private volatile Exception error;
+
+        Slot(String bucketName) {
+            this.bucketName = bucketName;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                ObjectListingIterator iterator = ObjectListingIterator.of(client, bucketName, null, null, null);
+                while (iterator.hasNext()) {
+                    List<S3ObjectSummary> page = iterator.next().getObjectSummaries();
+                    objectCount += page.size();
+                    pages.put(page);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                error = e;
+            }
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            try {
+                pages.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<S3ObjectSummary> take() {
+            try {
+                return pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException("Listing of bucket \"" + bucketName + "\" was interrupted");
+            }
+        }
+
+        Result getResult() {
+            return new Result(bucketName, objectCount, elapsedMillis, error);
+        }
+    }
+}
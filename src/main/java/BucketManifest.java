@@ -0,0 +1,494 @@
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * On-disk index of the keys, sizes, ETags and modification times of one bucket. The file is memory-mapped and
+ * sorted in the same UTF-8 byte order S3 lists keys in, so lookups are a binary search over the mapped file and
+ * never touch the cluster.
+ *
+ * <p>The index is refreshed by listing only part of the bucket and merging the result into a new file that
+ * atomically replaces the old one: {@link #refreshAfterLastKey()} picks up keys sorting after the last indexed
+ * key, which covers buckets whose keys are written in increasing order, {@link #refreshPrefix(String)} rescans
+ * one prefix and {@link #rebuild()} rescans the whole bucket.
+ *
+ * <p>File layout: the entries one after the other, then one 8 byte entry offset per entry, then a trailer with
+ * the offset of that table, the total object size, the entry count and a magic number. Files are limited to 2 GB,
+ * the size of a single mapping.
+ */
+public class BucketManifest {
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".rgw-manifests");
+    private static final int MAGIC = 0x424d4631;
+    private static final int TRAILER_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int MAX_LISTED_CHANGES = 1000;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final Path file;
+    private volatile Mapping mapping;
+
+    public BucketManifest(S3Client s3Client, String bucketName, Path file) throws IOException {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.file = file;
+        this.mapping = Files.exists(file) ? Mapping.map(file) : Mapping.EMPTY;
+    }
+
+    /**
+     * @param endpoint   endpoint of the cluster, null if unknown
+     * @param bucketName bucket the manifest indexes
+     * @return manifest file in {@link #DEFAULT_DIRECTORY}, in a directory per endpoint so that buckets of the same
+     * name on different clusters do not share a manifest
+     */
+    public static Path getDefaultFile(String endpoint, String bucketName) {
+        String cluster = endpoint == null ? "default"
+            : endpoint.replaceFirst("^[a-zA-Z]+://", "").replaceAll("[^a-zA-Z0-9.-]", "_");
+        return DEFAULT_DIRECTORY.resolve(cluster).resolve(bucketName + ".manifest");
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int size() {
+        return mapping.count;
+    }
+
+    public long getTotalSize() {
+        return mapping.totalSize;
+    }
+
+    public boolean contains(String key) {
+        Mapping current = mapping;
+        return current.indexOf(encode(key)) >= 0;
+    }
+
+    public Optional<Entry> get(String key) {
+        Mapping current = mapping;
+        int index = current.indexOf(encode(key));
+        return index < 0 ? Optional.empty() : Optional.of(current.entryAt(index));
+    }
+
+    /**
+     * @param prefix key prefix, empty for the whole bucket
+     * @return indexed entries under the prefix in key order
+     */
+    public Stream<Entry> entries(String prefix) {
+        Mapping current = mapping;
+        byte[] prefixBytes = encode(prefix);
+        int from = current.lowerBound(prefixBytes);
+        Iterator<Entry> iterator = new Iterator<Entry>() {
+            private int index = from;
+
+            @Override
+            public boolean hasNext() {
+                return index < current.count && startsWith(current.keyAt(index), prefixBytes);
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.entryAt(index++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+            Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL), false);
+    }
+
+    public long getTotalSize(String prefix) {
+        try (Stream<Entry> entries = entries(prefix)) {
+            return entries.mapToLong(Entry::getSize).sum();
+        }
+    }
+
+    public Stream<Entry> modifiedSince(Date since) {
+        return entries("").filter(entry -> entry.getLastModified().after(since));
+    }
+
+    /**
+     * Lists the keys sorting after the last indexed key and appends them
+     *
+     * @return the added entries
+     */
+    public synchronized Changes refreshAfterLastKey() throws IOException {
+        Mapping current = mapping;
+        if (current.count == 0) {
+            return rebuild();
+        }
+        byte[] lastKey = current.keyAt(current.count - 1);
+        return refresh(null, decode(lastKey), key -> compareKeys(key, lastKey) > 0);
+    }
+
+    /**
+     * Lists every key under the prefix and replaces the indexed entries under it
+     *
+     * @return the entries added, removed and modified under the prefix
+     */
+    public synchronized Changes refreshPrefix(String prefix) throws IOException {
+        byte[] prefixBytes = encode(prefix);
+        return refresh(prefix, null, key -> startsWith(key, prefixBytes));
+    }
+
+    /**
+     * Lists the whole bucket and replaces the index
+     *
+     * @return the entries added, removed and modified since the last refresh
+     */
+    public synchronized Changes rebuild() throws IOException {
+        return refresh(null, null, key -> true);
+    }
+
+    /**
+     * Merges a listing into the index. The listing returns exactly the keys matched by {@code inRange}, so
+     * indexed keys in range that the listing skips were removed and indexed keys out of range are kept as is.
+     */
+    private Changes refresh(String prefix, String startAfter, Predicate<byte[]> inRange) throws IOException {
+        Mapping current = mapping;
+        Changes changes = new Changes();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        try (Writer writer = new Writer(temporary)) {
+            Iterator<S3ObjectSummary> listed = StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                    s3Client.getBucketObjectPages(bucketName, prefix, null, startAfter), Spliterator.ORDERED), false)
+                .flatMap(page -> page.getObjectSummaries().stream())
+                .iterator();
+            int index = 0;
+            Entry remote = listed.hasNext() ? new Entry(listed.next()) : null;
+            while (index < current.count || remote != null) {
+                byte[] indexedKey = index < current.count ? current.keyAt(index) : null;
+                int order = indexedKey == null ? 1 : remote == null ? -1 : compareKeys(indexedKey, remote.keyBytes);
+                if (order < 0) {
+                    Entry indexed = current.entryAt(index++);
+                    if (inRange.test(indexedKey)) {
+                        changes.addRemoved(indexed);
+                    } else {
+                        writer.write(indexed);
+                    }
+                    continue;
+                }
+                if (order == 0) {
+                    Entry indexed = current.entryAt(index++);
+                    if (indexed.size != remote.size || !indexed.eTag.equals(remote.eTag)) {
+                        changes.addModified(remote);
+                    }
+                } else {
+                    changes.addAdded(remote);
+                }
+                writer.write(remote);
+                remote = listed.hasNext() ? new Entry(listed.next()) : null;
+            }
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mapping = Mapping.map(file);
+        return changes;
+    }
+
+    private static byte[] encode(String key) {
+        return key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decode(byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private static int compareKeys(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    public static class Entry {
+        private final String key;
+        private final byte[] keyBytes;
+        private final long size;
+        private final String eTag;
+        private final long lastModified;
+
+        Entry(S3ObjectSummary summary) {
+            this(encode(summary.getKey()), summary.getSize(), summary.getETag().replace("\"", ""),
+                summary.getLastModified() == null ? 0 : summary.getLastModified().getTime());
+        }
+
+        Entry(byte[] keyBytes, long size, String eTag, long lastModified) {
+            this.key = decode(keyBytes);
+            this.keyBytes = keyBytes;
+            this.size = size;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public Date getLastModified() {
+            return new Date(lastModified);
+        }
+
+        @Override
+        public String toString() {
+            return key + " (" + size + " bytes, " + eTag + ")";
+        }
+    }
+
+    /**
+     * Counts of the entries a refresh added, removed or modified, modified meaning a different size or ETag. Only
+     * the first 1000 entries of each kind are kept, so a rebuild of a large bucket does not hold every key in memory.
+     */
+    public static class Changes {
+        private final List<Entry> added = new ArrayList<>();
+        private final List<Entry> removed = new ArrayList<>();
+        private final List<Entry> modified = new ArrayList<>();
+        private long addedCount;
+        private long removedCount;
+        private long modifiedCount;
+
+        /**
+         * @return the first added entries, see {@link #getAddedCount()} for the total
+         */
+        public List<Entry> getAdded() {
+            return added;
+        }
+
+        /**
+         * @return the first removed entries, see {@link #getRemovedCount()} for the total
+         */
+        public List<Entry> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * @return the first modified entries, see {@link #getModifiedCount()} for the total
+         */
+        public List<Entry> getModified() {
+            return modified;
+        }
+
+        public long getAddedCount() {
+            return addedCount;
+        }
+
+        public long getRemovedCount() {
+            return removedCount;
+        }
+
+        public long getModifiedCount() {
+            return modifiedCount;
+        }
+
+        public boolean isEmpty() {
+            return addedCount == 0 && removedCount == 0 && modifiedCount == 0;
+        }
+
+        void addAdded(Entry entry) {
+            addedCount++;
+            addListed(added, entry);
+        }
+
+        void addRemoved(Entry entry) {
+            removedCount++;
+            addListed(removed, entry);
+        }
+
+        void addModified(Entry entry) {
+            modifiedCount++;
+            addListed(modified, entry);
+        }
+
+        private static void addListed(List<Entry> entries, Entry entry) {
+            if (entries.size() < MAX_LISTED_CHANGES) {
+                entries.add(entry);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return addedCount + " added, " + removedCount + " removed, " + modifiedCount + " modified";
+        }
+    }
+
+    private static class Mapping {
+        private static final Mapping EMPTY = new Mapping(ByteBuffer.allocate(0), 0, 0, 0);
+
+        private final ByteBuffer buffer;
+        private final long indexOffset;
+        private final int count;
+        private final long totalSize;
+
+        Mapping(ByteBuffer buffer, long indexOffset, int count, long totalSize) {
+            this.buffer = buffer;
+            this.indexOffset = indexOffset;
+            this.count = count;
+            this.totalSize = totalSize;
+        }
+
+        static Mapping map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long length = channel.size();
+                if (length < TRAILER_SIZE || length > Integer.MAX_VALUE) {
+                    throw new IOException("Manifest \"" + file + "\" has an invalid size of " + length + " bytes");
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                int trailer = (int) length - TRAILER_SIZE;
+                if (buffer.getInt(trailer + 20) != MAGIC) {
+                    throw new IOException("File \"" + file + "\" is not a bucket manifest");
+                }
+                return new Mapping(buffer, buffer.getLong(trailer), buffer.getInt(trailer + 16),
+                    buffer.getLong(trailer + 8));
+            }
+        }
+
+        /**
+         * @return index of the first key not sorting before the given key
+         */
+        int lowerBound(byte[] key) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareKeyAt(middle, key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return index of the given key, -1 if it is not indexed
+         */
+        int indexOf(byte[] key) {
+            int index = lowerBound(key);
+            return index < count && compareKeyAt(index, key) == 0 ? index : -1;
+        }
+
+        byte[] keyAt(int index) {
+            int offset = entryOffset(index);
+            byte[] key = new byte[Short.toUnsignedInt(buffer.getShort(offset))];
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset + Short.BYTES);
+            view.get(key);
+            return key;
+        }
+
+        Entry entryAt(int index) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(entryOffset(index));
+            byte[] key = new byte[Short.toUnsignedInt(view.getShort())];
+            view.get(key);
+            long size = view.getLong();
+            long lastModified = view.getLong();
+            byte[] eTag = new byte[Byte.toUnsignedInt(view.get())];
+            view.get(eTag);
+            return new Entry(key, size, new String(eTag, StandardCharsets.US_ASCII), lastModified);
+        }
+
+        private int compareKeyAt(int index, byte[] key) {
+            int offset = entryOffset(index);
+            int length = Short.toUnsignedInt(buffer.getShort(offset));
+            for (int i = 0; i < Math.min(length, key.length); i++) {
+                int order = Integer.compare(Byte.toUnsignedInt(buffer.get(offset + Short.BYTES + i)),
+                    Byte.toUnsignedInt(key[i]));
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return Integer.compare(length, key.length);
+        }
+
+        private int entryOffset(int index) {
+            return (int) buffer.getLong((int) indexOffset + index * Long.BYTES);
+        }
+    }
+
+    private static class Writer implements AutoCloseable {
+        private final DataOutputStream output;
+        private long[] offsets = new long[1024];
+        private int count;
+        private long position;
+        private long totalSize;
+
+        Writer(Path file) throws IOException {
+            OutputStream stream = Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            output = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        }
+
+        void write(Entry entry) throws IOException {
+            byte[] eTag = entry.eTag.getBytes(StandardCharsets.US_ASCII);
+            if (entry.keyBytes.length > 0xFFFF || eTag.length > 0xFF) {
+                throw new IOException("Key \"" + entry.key + "\" cannot be indexed");
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = position;
+            output.writeShort(entry.keyBytes.length);
+            output.write(entry.keyBytes);
+            output.writeLong(entry.size);
+            output.writeLong(entry.lastModified);
+            output.writeByte(eTag.length);
+            output.write(eTag);
+            position += Short.BYTES + entry.keyBytes.length + Long.BYTES + Long.BYTES + 1 + eTag.length;
+            totalSize += entry.size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (DataOutputStream out = output) {
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(offsets[i]);
+                }
+                out.writeLong(position);
+                out.writeLong(totalSize);
+                out.writeInt(count);
+                out.writeInt(MAGIC);
+            }
+        }
+    }
+}
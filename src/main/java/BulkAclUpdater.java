@@ -0,0 +1,162 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.AccessControlList;
+import com.amazonaws.services.s3.model.CanonicalGrantee;
+import com.amazonaws.services.s3.model.Grant;
+import com.amazonaws.services.s3.model.Permission;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Applies one ACL change to many buckets, or to every object under a prefix while the listing streams in. Each
+ * target costs an ACL read, and an ACL write only if the change is not already in place, with up to
+ * {@code concurrency} targets in flight.
+ */
+public class BulkAclUpdater {
+    public static final int DEFAULT_CONCURRENCY = 16;
+    public static final long DEFAULT_PROGRESS_INTERVAL = 10000;
+
+    private final S3Client s3Client;
+    private final int concurrency;
+    private final long progressInterval;
+    private final Consumer<AclReport> progress;
+
+    public BulkAclUpdater(S3Client s3Client) {
+        this(s3Client, DEFAULT_CONCURRENCY, DEFAULT_PROGRESS_INTERVAL,
+            report -> System.out.println("\t" + report.getProcessed() + " processed, " + report));
+    }
+
+    /**
+     * @param s3Client         client the ACLs are read and written with
+     * @param concurrency      number of targets updated at once
+     * @param progressInterval number of processed targets between progress callbacks
+     * @param progress         called with the running report every {@code progressInterval} targets
+     */
+    public BulkAclUpdater(S3Client s3Client, int concurrency, long progressInterval, Consumer<AclReport> progress) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        if (progressInterval < 1) {
+            throw new IllegalArgumentException("Progress interval must be at least 1");
+        }
+        this.s3Client = s3Client;
+        this.concurrency = concurrency;
+        this.progressInterval = progressInterval;
+        this.progress = progress;
+    }
+
+    /**
+     * A change to an ACL: {@code isApplied} tells whether the ACL already has it, {@code apply} makes it
+     */
+    public interface Change {
+        boolean isApplied(AccessControlList acl);
+
+        void apply(AccessControlList acl);
+    }
+
+    public static Change grant(String userId, Permission permission) {
+        CanonicalGrantee grantee = new CanonicalGrantee(userId);
+        return new Change() {
+            @Override
+            public boolean isApplied(AccessControlList acl) {
+                return acl.getGrantsAsList().contains(new Grant(grantee, permission));
+            }
+
+            @Override
+            public void apply(AccessControlList acl) {
+                acl.grantPermission(grantee, permission);
+            }
+        };
+    }
+
+    public static Change revokeAll(String userId) {
+        Predicate<Grant> isUserGrant = grant -> grant.getGrantee().getIdentifier().equals(userId);
+        return new Change() {
+            @Override
+            public boolean isApplied(AccessControlList acl) {
+                return acl.getGrantsAsList().stream().noneMatch(isUserGrant);
+            }
+
+            @Override
+            public void apply(AccessControlList acl) {
+                acl.revokeAllPermissions(new CanonicalGrantee(userId));
+            }
+        };
+    }
+
+    public AclReport updateBuckets(Collection<String> bucketNames, Change change) {
+        AclReport report = new AclReport(bucketNames.size() + " buckets");
+        run(report, bucketNames.stream(), bucketName -> update(report, bucketName, change,
+            () -> s3Client.getCurrentBucketAcl(bucketName), acl -> s3Client.setBucketAcl(bucketName, acl)));
+        return report;
+    }
+
+    public AclReport updateObjects(String bucketName, String prefix, Change change) {
+        AclReport report = new AclReport("Bucket \"" + bucketName + "\" prefix \"" + prefix + "\"");
+        try (Stream<S3ObjectSummary> objects = s3Client.getBucketObjectListing(bucketName, prefix)) {
+            run(report, objects.map(S3ObjectSummary::getKey), key -> update(report, key, change,
+                () -> s3Client.getObjectAcl(bucketName, key), acl -> s3Client.setObjectAcl(bucketName, key, acl)));
+        }
+        return report;
+    }
+
+    private void update(AclReport report, String name, Change change, Supplier<AccessControlList> reader,
+        Consumer<AccessControlList> writer) {
+        long processed;
+        try {
+            AccessControlList acl = reader.get();
+            if (change.isApplied(acl)) {
+                processed = report.addUnchanged();
+            } else {
+                change.apply(acl);
+                writer.accept(acl);
+                processed = report.addUpdated();
+            }
+        } catch (AmazonServiceException e) {
+            processed = report.addFailure(name, e.getErrorCode(), e.getErrorMessage());
+        } catch (SdkClientException e) {
+            processed = report.addFailure(name, "ClientError", e.getMessage());
+        }
+        if (progress != null && processed % progressInterval == 0) {
+            progress.accept(report);
+        }
+    }
+
+    private void run(AclReport report, Stream<String> targets, Consumer<String> task) {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        try {
+            targets.forEach(target -> {
+                acquire(inFlight, 1);
+                executor.execute(() -> {
+                    try {
+                        task.accept(target);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            });
+            acquire(inFlight, concurrency * 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void acquire(Semaphore inFlight, int permits) {
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("ACL update was interrupted");
+        }
+    }
+}
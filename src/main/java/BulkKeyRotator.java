@@ -0,0 +1,151 @@
+import org.twonote.rgwadmin4j.model.S3Credential;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+/**
+ * Rotates the S3 keys of many users concurrently at a bounded rate. Every outcome is appended to a results
+ * file as soon as it is known, and users already marked as rotated in that file are skipped, so an interrupted
+ * run can simply be started again with the same file. Secret keys are never written to the file.
+ */
+public class BulkKeyRotator {
+    public static final int DEFAULT_CONCURRENCY = 8;
+    public static final double DEFAULT_ROTATIONS_PER_SECOND = 10;
+    private static final String ROTATED = "ROTATED";
+    private static final String FAILED = "FAILED";
+    private static final String SEPARATOR = "\t";
+
+    private final RgwAdminClient adminClient;
+    private final int concurrency;
+    private final RateLimiter rateLimiter;
+
+    public BulkKeyRotator(RgwAdminClient adminClient) {
+        this(adminClient, DEFAULT_CONCURRENCY, DEFAULT_ROTATIONS_PER_SECOND);
+    }
+
+    public BulkKeyRotator(RgwAdminClient adminClient, int concurrency, double rotationsPerSecond) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.adminClient = adminClient;
+        this.concurrency = concurrency;
+        this.rateLimiter = new RateLimiter(rotationsPerSecond);
+    }
+
+    /**
+     * Rotates the keys of every user that is not already recorded as rotated in the results file
+     *
+     * @param userIds     users to rotate
+     * @param resultsFile file the outcome of every user is appended to, also read to resume a previous run
+     * @param verifier    checks that the new key works before the old keys are removed
+     * @return counts of rotated, failed and skipped users
+     */
+    public Summary rotate(Collection<String> userIds, Path resultsFile, BiPredicate<String, S3Credential> verifier)
+        throws IOException, InterruptedException {
+        Set<String> rotated = readRotatedUsers(resultsFile);
+        Summary summary = new Summary();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try (BufferedWriter results = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            List<Future<?>> rotations = new ArrayList<>();
+            for (String userId : new HashSet<>(userIds)) {
+                if (rotated.contains(userId)) {
+                    summary.skipped.incrementAndGet();
+                    continue;
+                }
+                rotations.add(executor.submit(() -> {
+                    rateLimiter.acquire();
+                    rotateUser(userId, verifier, results, summary);
+                    return null;
+                }));
+            }
+            for (Future<?> rotation : rotations) {
+                rotation.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw (InterruptedException) e.getCause();
+            }
+            throw new IOException("Unable to record rotation result", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return summary;
+    }
+
+    private void rotateUser(String userId, BiPredicate<String, S3Credential> verifier, BufferedWriter results,
+        Summary summary) throws IOException {
+        try {
+            S3Credential credential = adminClient.rotateUserKey(userId, verifier);
+            summary.rotated.incrementAndGet();
+            record(results, userId, ROTATED, credential.getAccessKey(), "");
+        } catch (RuntimeException e) {
+            summary.failed.incrementAndGet();
+            record(results, userId, FAILED, "", String.valueOf(e.getMessage()).replaceAll("\\s+", " "));
+        }
+    }
+
+    private void record(BufferedWriter results, String userId, String status, String accessKey, String message)
+        throws IOException {
+        synchronized (results) {
+            results.write(String.join(SEPARATOR, userId, status, accessKey, Instant.now().toString(), message));
+            results.newLine();
+            results.flush();
+        }
+    }
+
+    private Set<String> readRotatedUsers(Path resultsFile) throws IOException {
+        Set<String> rotated = new HashSet<>();
+        if (Files.exists(resultsFile)) {
+            for (String line : Files.readAllLines(resultsFile, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(SEPARATOR, -1);
+                if (fields.length > 1 && fields[1].equals(ROTATED)) {
+                    rotated.add(fields[0]);
+                }
+            }
+        }
+        return rotated;
+    }
+
+    public static class Summary {
+        private final AtomicInteger rotated = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        public int getRotated() {
+            return rotated.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        @Override
+        public String toString() {
+            return rotated.get() + " rotated, " + failed.get() + " failed, " + skipped.get()
+                + " skipped (already rotated)";
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a region of a file while computing its CRC32C. The stream can be reset to any earlier position, as the
+ * SDK does when it retries a request, and every byte still enters the checksum exactly once, so the checksum
+ * always describes the bytes that were last sent.
+ */
+public class ChecksumInputStream extends MappedFileInputStream {
+    private final CRC32C crc = new CRC32C();
+    private long checksummed;
+
+    public ChecksumInputStream(File file) throws IOException {
+        super(file);
+    }
+
+    /**
+     * @param file   file to read
+     * @param offset position of the region in the file
+     * @param length length of the region in bytes
+     */
+    public ChecksumInputStream(File file, long offset, long length) throws IOException {
+        super(file, offset, length);
+    }
+
+    /**
+     * @return CRC32C of the whole file, read in a single pass through a memory mapping
+     */
+    public static long checksum(File file) throws IOException {
+        try (ChecksumInputStream input = new ChecksumInputStream(file)) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return input.getChecksum();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int off, int len) throws IOException {
+        long start = getPosition();
+        int n = super.read(buffer, off, len);
+        if (n > 0 && start + n > checksummed) {
+            int seen = (int) (checksummed - start);
+            crc.update(buffer, off + seen, n - seen);
+            checksummed = start + n;
+        }
+        return n;
+    }
+
+    /**
+     * Skips freely over bytes already checksummed, bytes beyond them are read so they enter the checksum
+     */
+    @Override
+    public synchronized long skip(long n) throws IOException {
+        long skippable = Math.min(n, checksummed - getPosition());
+        if (skippable > 0 || n <= 0) {
+            return super.skip(skippable);
+        }
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        return Math.max(read(buffer, 0, buffer.length), 0);
+    }
+
+    /**
+     * @return CRC32C of the region
+     * @throws IllegalStateException if the region was not read to the end
+     */
+    public synchronized long getChecksum() {
+        if (checksummed != getLength()) {
+            throw new IllegalStateException("Only " + checksummed + " of " + getLength() + " bytes were read");
+        }
+        return crc.getValue();
+    }
+}
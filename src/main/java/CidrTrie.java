@@ -0,0 +1,112 @@
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Binary prefix trie of IPv4 and IPv6 CIDR blocks. A lookup walks at most one node per address bit and stops at
+ * the first block containing the address.
+ */
+public class CidrTrie {
+    private final Node ipv4 = new Node();
+    private final Node ipv6 = new Node();
+    private boolean empty = true;
+
+    /**
+     * @param cidr block such as "10.0.0.0/8" or "2001:db8::/32", a plain address is a single host block
+     */
+    public void add(String cidr) {
+        int slash = cidr.indexOf('/');
+        byte[] address = parseAddress(slash < 0 ? cidr : cidr.substring(0, slash));
+        int prefixLength = slash < 0 ? address.length * 8 : Integer.parseInt(cidr.substring(slash + 1).trim());
+        if (prefixLength < 0 || prefixLength > address.length * 8) {
+            throw new IllegalArgumentException("Invalid CIDR block \"" + cidr + "\"");
+        }
+        Node node = address.length == 4 ? ipv4 : ipv6;
+        for (int bit = 0; bit < prefixLength && !node.terminal; bit++) {
+            int branch = bitAt(address, bit);
+            if (node.children[branch] == null) {
+                node.children[branch] = new Node();
+            }
+            node = node.children[branch];
+        }
+        node.terminal = true;
+        node.children[0] = null;
+        node.children[1] = null;
+        empty = false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean contains(String address) {
+        return contains(parseAddress(address));
+    }
+
+    public boolean contains(byte[] address) {
+        Node node = address.length == 4 ? ipv4 : ipv6;
+        for (int bit = 0; node != null; bit++) {
+            if (node.terminal) {
+                return true;
+            }
+            if (bit == address.length * 8) {
+                return false;
+            }
+            node = node.children[bitAt(address, bit)];
+        }
+        return false;
+    }
+
+    /**
+     * Parses a literal IPv4 or IPv6 address without any name lookup
+     *
+     * @param address literal address
+     * @return 4 or 16 address bytes
+     */
+    public static byte[] parseAddress(String address) {
+        String value = address.trim();
+        if (value.indexOf(':') < 0) {
+            return parseIpv4(value);
+        }
+        try {
+            return InetAddress.getByName(value).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid address \"" + address + "\"", e);
+        }
+    }
+
+    private static byte[] parseIpv4(String address) {
+        byte[] bytes = new byte[4];
+        int octet = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= address.length(); i++) {
+            char c = i < address.length() ? address.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0 || octet == 4 || value > 255) {
+                    throw new IllegalArgumentException("Invalid address \"" + address + "\"");
+                }
+                bytes[octet++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 3) {
+                value = value * 10 + (c - '0');
+                digits++;
+            } else {
+                throw new IllegalArgumentException("Invalid address \"" + address + "\"");
+            }
+        }
+        if (octet != 4) {
+            throw new IllegalArgumentException("Invalid address \"" + address + "\"");
+        }
+        return bytes;
+    }
+
+    private static int bitAt(byte[] address, int bit) {
+        return (address[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+
+    private static class Node {
+        private final Node[] children = new Node[2];
+        private boolean terminal;
+    }
+}
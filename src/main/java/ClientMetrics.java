@@ -0,0 +1,120 @@
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.twonote.rgwadmin4j.impl.RgwAdminException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records per-request metrics for every call made through the AmazonS3 and RgwAdmin interfaces. S3Client,
+ * RgwAdminClient and the transfer helpers all talk to RGW through those interfaces, so wrapping them covers every
+ * request they send. The metrics describe single SDK calls, not the client operations built from them: a multipart
+ * upload shows up as its initiate, part and complete requests. A GET is timed until its response headers arrive
+ * and its bytes are the content length the gateway announced, since the content is streamed by the caller later.
+ * Retries the SDK makes internally count as one request.
+ */
+public class ClientMetrics {
+    private static final String JMX_DOMAIN = "radosgw.client";
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+    private ClientMetrics() {
+    }
+
+    /**
+     * Wraps the target so that every interface call is counted and timed as a request under {@code client.method}
+     *
+     * @param type   interface to wrap
+     * @param client name of the client the metrics are reported under, e.g. "s3"
+     * @param target instance the calls are forwarded to
+     * @return instrumented instance of the interface
+     */
+    public static <T> T instrument(Class<T> type, String client, T target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            OperationMetrics metrics = getOperation(client, method.getName());
+            long start = System.nanoTime();
+            try {
+                Object result = method.invoke(target, args);
+                metrics.record(System.nanoTime() - start, countBytes(args, result));
+                return result;
+            } catch (InvocationTargetException e) {
+                metrics.recordError(System.nanoTime() - start, getStatus(e.getCause()));
+                throw e.getCause();
+            }
+        }));
+    }
+
+    public static OperationMetrics getOperation(String client, String operation) {
+        return OPERATIONS.computeIfAbsent(client + "." + operation, key -> {
+            OperationMetrics metrics = new OperationMetrics(client, operation);
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(
+                    JMX_DOMAIN + ":type=Request,client=" + client + ",name=" + operation));
+            } catch (JMException e) {
+                System.err.println("Unable to register metrics of " + key + ": " + e.getMessage());
+            }
+            return metrics;
+        });
+    }
+
+    public static Collection<OperationMetrics> getOperations() {
+        List<OperationMetrics> operations = new ArrayList<>(OPERATIONS.values());
+        operations.sort(Comparator.comparing(OperationMetrics::getClient)
+            .thenComparing(OperationMetrics::getOperation));
+        return operations;
+    }
+
+    public static void printMetrics() {
+        getOperations().forEach(metrics -> System.out.println("\t" + metrics));
+    }
+
+    private static int getStatus(Throwable error) {
+        if (error instanceof AmazonServiceException) {
+            return ((AmazonServiceException) error).getStatusCode();
+        }
+        if (error instanceof RgwAdminException) {
+            return ((RgwAdminException) error).status();
+        }
+        return 0;
+    }
+
+    private static long countBytes(Object[] args, Object result) {
+        if (result instanceof S3Object) {
+            return ((S3Object) result).getObjectMetadata().getContentLength();
+        }
+        if (result instanceof ObjectMetadata && args != null && args.length == 2
+            && args[0] instanceof GetObjectRequest && args[1] instanceof File) {
+            return ((ObjectMetadata) result).getContentLength();
+        }
+        if (args == null || args.length == 0) {
+            return 0;
+        }
+        if (args[0] instanceof PutObjectRequest) {
+            PutObjectRequest request = (PutObjectRequest) args[0];
+            if (request.getFile() != null) {
+                return request.getFile().length();
+            }
+            return request.getMetadata() == null ? 0 : request.getMetadata().getContentLength();
+        }
+        if (args[0] instanceof UploadPartRequest) {
+            return ((UploadPartRequest) args[0]).getPartSize();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of a server-side clone: how many objects and bytes were copied, and every key that was not.
+ */
+public class CloneReport {
+    private final String sourceBucketName;
+    private final String targetBucketName;
+    private final AtomicLong copied = new AtomicLong();
+    private final AtomicLong copiedBytes = new AtomicLong();
+    private final ConcurrentLinkedQueue<PurgeReport.Failure> failures = new ConcurrentLinkedQueue<>();
+
+    public CloneReport(String sourceBucketName, String targetBucketName) {
+        this.sourceBucketName = sourceBucketName;
+        this.targetBucketName = targetBucketName;
+    }
+
+    void addCopied(long bytes) {
+        copied.incrementAndGet();
+        copiedBytes.addAndGet(bytes);
+    }
+
+    void addFailure(String key, String code, String message) {
+        failures.add(new PurgeReport.Failure(key, null, code, message));
+    }
+
+    public String getSourceBucketName() {
+        return sourceBucketName;
+    }
+
+    public String getTargetBucketName() {
+        return targetBucketName;
+    }
+
+    public long getCopied() {
+        return copied.get();
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes.get();
+    }
+
+    public List<PurgeReport.Failure> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public void printFailures() {
+        failures.forEach(failure -> System.err.println("\t" + failure));
+    }
+
+    @Override
+    public String toString() {
+        return "Bucket \"" + sourceBucketName + "\" to \"" + targetBucketName + "\": " + copied.get() + " copied ("
+            + copiedBytes.get() + " bytes), " + failures.size() + " failed";
+    }
+}
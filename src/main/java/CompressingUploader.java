@@ -0,0 +1,237 @@
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads a stream through an {@link ObjectCodec}, compressing while reading. The compressed length is unknown
+ * until the source ends, so compressed bytes are collected into part sized buffers: output that fits in one buffer
+ * is sent with a single PUT, anything larger becomes a multipart upload whose parts are sent as soon as each
+ * buffer fills. At most {@code concurrency} parts are on the wire at once and their buffers are reused, so memory
+ * stays at {@code concurrency + 1} parts whatever the object size.
+ */
+public class CompressingUploader {
+    public static final int DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AmazonS3 client;
+    private final int partSize;
+    private final int concurrency;
+
+    public CompressingUploader(AmazonS3 client) {
+        this(client, DEFAULT_PART_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    public CompressingUploader(AmazonS3 client, int partSize, int concurrency) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("Part size must be at least " + MIN_PART_SIZE + " bytes");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.client = client;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param bucketName target bucket
+     * @param key        target object key
+     * @param source     uncompressed content, read to the end but not closed
+     * @param codec      codec to compress with, tagged in the object's metadata
+     * @param metadata   object metadata, content length is ignored since it is the compressed length
+     * @return result of the upload
+     */
+    public PutObjectResult upload(String bucketName, String key, InputStream source, ObjectCodec codec,
+        ObjectMetadata metadata) throws IOException {
+        ObjectMetadata compressedMetadata = new ObjectMetadata();
+        compressedMetadata.setUserMetadata(metadata.getUserMetadata());
+        compressedMetadata.addUserMetadata(ObjectCodec.METADATA_KEY, codec.getFormatName());
+        if (metadata.getContentType() != null) {
+            compressedMetadata.setContentType(metadata.getContentType());
+        }
+
+        PartOutputStream parts = new PartOutputStream(bucketName, key, compressedMetadata);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream output = codec.compress(parts)) {
+                for (int n = source.read(buffer); n != -1; n = source.read(buffer)) {
+                    output.write(buffer, 0, n);
+                }
+            }
+            return parts.finish();
+        } catch (IOException | RuntimeException e) {
+            parts.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Collects compressed bytes into part buffers and sends every full buffer as the next part
+     */
+    private class PartOutputStream extends OutputStream {
+        private final String bucketName;
+        private final String key;
+        private final ObjectMetadata metadata;
+        private final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(concurrency + 1);
+        private final List<Future<PartETag>> parts = new ArrayList<>();
+        private ExecutorService executor;
+        private String uploadId;
+        private byte[] current = new byte[partSize];
+        private int count;
+        private boolean finished;
+
+        PartOutputStream(String bucketName, String key, ObjectMetadata metadata) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == current.length) {
+                    sendPart(false);
+                }
+                int n = Math.min(len, current.length - count);
+                System.arraycopy(b, off, current, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() {
+            // the buffered remainder is sent by finish, once the codec has written its trailer
+        }
+
+        PutObjectResult finish() throws IOException {
+            finished = true;
+            if (uploadId == null) {
+                metadata.setContentLength(count);
+                return client.putObject(new PutObjectRequest(bucketName, key,
+                    new ByteArrayInputStream(current, 0, count), metadata));
+            }
+            sendPart(true);
+            List<PartETag> partETags = new ArrayList<>(parts.size());
+            try {
+                for (Future<PartETag> part : parts) {
+                    partETags.add(part.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Upload of \"" + key + "\" was interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SdkClientException) {
+                    throw (SdkClientException) e.getCause();
+                }
+                throw new IOException("Upload of \"" + key + "\" failed", e.getCause());
+            }
+            CompleteMultipartUploadResult multipartResult = client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+            executor.shutdown();
+            PutObjectResult result = new PutObjectResult();
+            result.setETag(multipartResult.getETag());
+            result.setVersionId(multipartResult.getVersionId());
+            return result;
+        }
+
+        void abort() {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (uploadId == null) {
+                return;
+            }
+            try {
+                client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+            } catch (SdkClientException e) {
+                System.err.println("Unable to abort upload of \"" + key + "\": " + e.getMessage());
+            }
+        }
+
+        private void sendPart(boolean lastPart) throws IOException {
+            if (uploadId == null) {
+                uploadId = client.initiateMultipartUpload(
+                    new InitiateMultipartUploadRequest(bucketName, key, metadata)).getUploadId();
+                executor = Executors.newFixedThreadPool(concurrency);
+                for (int i = 0; i < concurrency; i++) {
+                    freeBuffers.add(new byte[partSize]);
+                }
+            }
+            checkFailedParts();
+            byte[] data = current;
+            UploadPartRequest request = new UploadPartRequest()
+                .withBucketName(bucketName)
+                .withKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(parts.size() + 1)
+                .withInputStream(new ByteArrayInputStream(data, 0, count))
+                .withPartSize(count)
+                .withLastPart(lastPart);
+            parts.add(executor.submit(() -> {
+                try {
+                    return client.uploadPart(request).getPartETag();
+                } finally {
+                    freeBuffers.add(data);
+                }
+            }));
+            if (!finished) {
+                try {
+                    current = freeBuffers.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Upload of \"" + key + "\" was interrupted");
+                }
+                count = 0;
+            }
+        }
+
+        /**
+         * Stops compressing as soon as any sent part has failed
+         */
+        private void checkFailedParts() throws IOException {
+            for (Future<PartETag> part : parts) {
+                if (part.isDone()) {
+                    try {
+                        part.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Upload of \"" + key + "\" was interrupted");
+                    } catch (ExecutionException e) {
+                        throw new IOException("Upload of \"" + key + "\" failed", e.getCause());
+                    }
+                }
+            }
+        }
+    }
+}
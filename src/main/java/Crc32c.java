@@ -0,0 +1,101 @@
+import java.util.Base64;
+
+/**
+ * CRC32C of an object assembled from separately checksummed pieces, such as multipart parts or download ranges.
+ * Pieces are combined in object order with the zlib combination method, so none of them has to be read again.
+ */
+public class Crc32c {
+    /**
+     * User metadata key holding the base64 big endian CRC32C of the whole object
+     */
+    public static final String METADATA_KEY = "checksum-crc32c";
+    private static final long POLYNOMIAL = 0x82F63B78L;
+
+    private long value;
+    private long length;
+
+    /**
+     * Appends the next piece of the object
+     *
+     * @param pieceChecksum CRC32C of the piece
+     * @param pieceLength   length of the piece in bytes
+     */
+    public void update(long pieceChecksum, long pieceLength) {
+        value = combine(value, pieceChecksum, pieceLength);
+        length += pieceLength;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public String toMetadataValue() {
+        return encode(value);
+    }
+
+    public static String encode(long checksum) {
+        return Base64.getEncoder().encodeToString(new byte[]{
+            (byte) (checksum >>> 24), (byte) (checksum >>> 16), (byte) (checksum >>> 8), (byte) checksum});
+    }
+
+    /**
+     * @param first        CRC32C of the first piece
+     * @param second       CRC32C of the second piece
+     * @param secondLength length of the second piece in bytes
+     * @return CRC32C of the two pieces concatenated
+     */
+    public static long combine(long first, long second, long secondLength) {
+        if (secondLength <= 0) {
+            return first;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = POLYNOMIAL;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = 1L << (n - 1);
+        }
+        square(even, odd);
+        square(odd, even);
+        long crc = first;
+        long remaining = secondLength;
+        while (true) {
+            square(even, odd);
+            if ((remaining & 1) != 0) {
+                crc = times(even, crc);
+            }
+            remaining >>>= 1;
+            if (remaining == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((remaining & 1) != 0) {
+                crc = times(odd, crc);
+            }
+            remaining >>>= 1;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return crc ^ second;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
@@ -1,7 +1,16 @@
+import com.amazonaws.services.s3.model.Bucket;
+
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Collectors;
 
 public class DebugMenu {
     private static final String ADMIN_USER = "nano";
@@ -16,8 +25,16 @@ public class DebugMenu {
             System.out.println(SPACER);
             System.out.println("=          DEBUG MENU          =");
             System.out.println(SPACER);
-            loginMenu(new LocalConfig(CONFIG_LOCATION));
-        } catch (FileNotFoundException e) {
+            LocalConfig config = new LocalConfig(CONFIG_LOCATION);
+            MetricsServer metricsServer = MetricsServer.startFromConfig(config);
+            try {
+                loginMenu(config);
+            } finally {
+                if (metricsServer != null) {
+                    metricsServer.stop();
+                }
+            }
+        } catch (IOException e) {
             System.err.println(e.getMessage());
         }
     }
@@ -49,6 +66,7 @@ public class DebugMenu {
             System.out.println("2 - Object operations");
             System.out.println("3 - Admin operations");
             System.out.println("4 - Bucket policies");
+            System.out.println("5 - Client metrics");
             System.out.println("0 - Return to login menu");
             option = getMenuOption();
 
@@ -65,6 +83,12 @@ public class DebugMenu {
                 case 4:
                     menuOption(() -> bucketPolicyMenu(s3Client));
                     break;
+                case 5:
+                    menuOptionEnter("Client request metrics:", () -> {
+                        ClientMetrics.printMetrics();
+                        AdaptiveLimiter.getLimiters().forEach(limiter -> System.out.println("\t" + limiter));
+                    });
+                    break;
                 case 0:
                     break;
                 default:
@@ -90,6 +114,9 @@ public class DebugMenu {
             System.out.println("9 - Disable bucket ACLs");
             System.out.println("10 - Set lifecycle configuration");
             System.out.println("11 - Print lifecycle configuration");
+            System.out.println("12 - Clone bucket");
+            System.out.println("13 - Grant or revoke user permissions on many buckets");
+            System.out.println("14 - Grant or revoke user permissions on objects under a prefix");
             System.out.println("0 - Return to previous menu");
             option = getMenuOption();
 
@@ -137,12 +164,11 @@ public class DebugMenu {
                 case 7:
                     menuOptionEnter("Insert bucket name:", () -> {
                         String bucketName = stdIn.nextLine();
-                        s3Client.removeObjectsFromBucket(bucketName);
-                        s3Client.removeBucket(bucketName);
+                        printPurgeReport(s3Client.removeNonEmptyBucket(bucketName));
                     });
                     break;
                 case 8:
-                    menuOptionEnter(s3Client::removeAllBuckets);
+                    menuOptionEnter(() -> s3Client.removeAllBuckets().forEach(DebugMenu::printPurgeReport));
                     break;
                 case 9:
                     menuOptionEnter("Insert bucket name", "ACL successfully disabled!", () -> {
@@ -180,6 +206,51 @@ public class DebugMenu {
                         s3Client.printLifecycleConfiguration(bucketName);
                     });
                     break;
+                case 12:
+                    menuOptionEnter("Insert source bucket name", () -> {
+                        String sourceBucketName = stdIn.nextLine();
+                        System.out.println("Insert source prefix (empty for the whole bucket):");
+                        String sourcePrefix = stdIn.nextLine();
+                        System.out.println("Insert target bucket name:");
+                        String targetBucketName = stdIn.nextLine();
+                        System.out.println("Insert target prefix (empty to keep the keys):");
+                        String targetPrefix = stdIn.nextLine();
+                        CloneReport report = s3Client.cloneBucket(sourceBucketName, sourcePrefix, targetBucketName,
+                            targetPrefix);
+                        System.out.println(report);
+                        report.printFailures();
+                    });
+                    break;
+                case 13:
+                    menuOptionEnter("Insert bucket names separated by commas:", () -> {
+                        List<String> bucketNames = Arrays.asList(stdIn.nextLine().split("\\s*,\\s*"));
+                        System.out.println("Insert user Id:");
+                        String userId = stdIn.nextLine();
+                        System.out.println("Insert permission to be given (empty to revoke all):");
+                        String permission = stdIn.nextLine();
+                        AclReport report = permission.isBlank()
+                            ? s3Client.revokeAllPermissions(bucketNames, userId)
+                            : s3Client.grantPermission(bucketNames, userId, permission);
+                        System.out.println(report);
+                        report.printFailures();
+                    });
+                    break;
+                case 14:
+                    menuOptionEnter("Insert bucket name:", () -> {
+                        String bucketName = stdIn.nextLine();
+                        System.out.println("Insert object prefix (empty for all objects):");
+                        String prefix = stdIn.nextLine();
+                        System.out.println("Insert user Id:");
+                        String userId = stdIn.nextLine();
+                        System.out.println("Insert permission to be given (empty to revoke all):");
+                        String permission = stdIn.nextLine();
+                        AclReport report = permission.isBlank()
+                            ? s3Client.revokeAllObjectPermissions(bucketName, prefix, userId)
+                            : s3Client.grantObjectPermission(bucketName, prefix, userId, permission);
+                        System.out.println(report);
+                        report.printFailures();
+                    });
+                    break;
                 case 0:
                     break;
                 default:
@@ -199,6 +270,11 @@ public class DebugMenu {
             System.out.println("4 - List all objects from all buckets");
             System.out.println("5 - Get object from bucket and Save it to file");
             System.out.println("6 - Print object's ACL");
+            System.out.println("7 - Sync objects directory to bucket");
+            System.out.println("8 - Refresh bucket manifest");
+            System.out.println("9 - Pack objects directory into bucket");
+            System.out.println("10 - Get packed object and Save it to file");
+            System.out.println("11 - Add object to bucket compressed");
             System.out.println("0 - Return to previous menu");
             option = getMenuOption();
 
@@ -226,7 +302,7 @@ public class DebugMenu {
                     });
                     break;
                 case 4:
-                    menuOptionEnter(() -> s3Client.getBucketList().forEach(bucket -> s3Client.printBucketObjectList(bucket.getName())));
+                    menuOptionEnter(() -> s3Client.printAllBucketObjectLists());
                     break;
                 case 5:
                     menuOptionEnter("Insert target bucket name", "Object successfully saved!", () -> {
@@ -247,6 +323,72 @@ public class DebugMenu {
                         s3Client.printObjectACL(bucketName, objectName);
                     });
                     break;
+                case 7:
+                    menuOptionEnter("Insert target bucket name", () -> {
+                        String bucketName = stdIn.nextLine();
+                        System.out.println("Insert key prefix (empty for none):");
+                        String prefix = stdIn.nextLine();
+                        System.out.println("Delete remote objects missing locally? (y/n)");
+                        boolean deleteOrphans = stdIn.nextLine().trim().equalsIgnoreCase("y");
+                        SyncReport report = s3Client.syncDirectory(bucketName, prefix, Paths.get(objectsPath),
+                            deleteOrphans);
+                        System.out.println(report);
+                        report.printFailures();
+                    });
+                    break;
+                case 8:
+                    menuOptionEnter("Insert target bucket name", () -> {
+                        String bucketName = stdIn.nextLine();
+                        System.out.println("Insert prefix to rescan (empty for new keys only, * for everything):");
+                        String prefix = stdIn.nextLine();
+                        BucketManifest manifest = s3Client.openBucketManifest(bucketName);
+                        BucketManifest.Changes changes = prefix.isEmpty() ? manifest.refreshAfterLastKey()
+                            : prefix.equals("*") ? manifest.rebuild() : manifest.refreshPrefix(prefix);
+                        System.out.println("Manifest of \"" + bucketName + "\": " + changes + ", "
+                            + manifest.size() + " objects, " + manifest.getTotalSize() + " bytes");
+                    });
+                    break;
+                case 9:
+                    menuOptionEnter("Insert target bucket name", () -> {
+                        String bucketName = stdIn.nextLine();
+                        System.out.println("Insert key prefix (empty for none):");
+                        String prefix = stdIn.nextLine();
+                        List<String> packKeys = s3Client.packDirectory(bucketName, prefix, Paths.get(objectsPath));
+                        System.out.println("Packed objects into " + packKeys.size() + " packs:");
+                        packKeys.forEach(packKey -> System.out.println("\t" + packKey));
+                    });
+                    break;
+                case 10:
+                    menuOptionEnter("Insert target bucket name", "Object successfully saved!", () -> {
+                        String bucketName = stdIn.nextLine();
+                        System.out.println("Insert key prefix of the packs (empty for none):");
+                        String prefix = stdIn.nextLine();
+                        System.out.println("Insert packed object name:");
+                        String objectName = stdIn.nextLine();
+                        System.out.println("Insert destiny file name:");
+                        String destinyFile = stdIn.nextLine();
+                        String packKey = s3Client.listPackMembers(bucketName, prefix).get(objectName);
+                        if (packKey == null) {
+                            throw new IllegalArgumentException("No pack holds \"" + objectName + "\"");
+                        }
+                        try (InputStream input = s3Client.getPackMember(bucketName, packKey, objectName)
+                            .getObjectContent()) {
+                            Files.copy(input, Paths.get(objectsPath + destinyFile),
+                                StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    });
+                    break;
+                case 11:
+                    menuOptionEnter("Insert bucket name:", "Object successfully added!", () -> {
+                        String bucketName = stdIn.nextLine();
+                        System.out.println("Insert object file name:");
+                        String objectName = stdIn.nextLine();
+                        System.out.println("Insert codec " + Arrays.toString(ObjectCodec.values()) + ":");
+                        ObjectCodec codec = ObjectCodec.valueOf(stdIn.nextLine().trim().toUpperCase());
+                        s3Client.addObjectToBucketCompressed(bucketName, objectName,
+                            new File(objectsPath + objectName), codec);
+                    });
+                    break;
                 case 0:
                     break;
                 default:
@@ -269,6 +411,9 @@ public class DebugMenu {
             System.out.println("7 - Rotate user keys");
             System.out.println("8 - List all buckets cluster");
             System.out.println("9 - Rotate 100");
+            System.out.println("10 - Show user cache statistics");
+            System.out.println("11 - Bulk rotate user keys");
+            System.out.println("12 - Cluster usage report");
             System.out.println("0 - Return to previous menu");
             option = getMenuOption();
 
@@ -325,6 +470,39 @@ public class DebugMenu {
                         rgwAdminClient.rotate100(username);
                     });
                     break;
+                case 10:
+                    menuOptionEnter(rgwAdminClient::printUserCacheStats);
+                    break;
+                case 11:
+                    menuOptionEnter("Insert user names separated by commas:", () -> {
+                        String usernames = stdIn.nextLine();
+                        if (usernames.isBlank()) {
+                            System.out.println("No users to rotate");
+                            return;
+                        }
+                        System.out.println("Insert results file:");
+                        String resultsFile = stdIn.nextLine();
+                        List<String> userIds = Arrays.asList(usernames.trim().split("\\s*,\\s*"));
+                        LocalConfig config = new LocalConfig(CONFIG_LOCATION);
+                        System.out.println(rgwAdminClient.rotateUserKeys(userIds, Paths.get(resultsFile),
+                            config.get("endpoint"), config.get("region")));
+                    });
+                    break;
+                case 12:
+                    menuOptionEnter("Insert number of top buckets and users to list:", () -> {
+                        int topN = Integer.parseInt(stdIn.nextLine().trim());
+                        System.out.println("Insert report file (empty to print):");
+                        String reportFile = stdIn.nextLine();
+                        UsageReport report = rgwAdminClient.getUsageReport(UsageReporter.DEFAULT_PARALLELISM);
+                        String json = report.toJson(topN).toString(2);
+                        if (reportFile.isBlank()) {
+                            System.out.println(json);
+                        } else {
+                            Files.write(Paths.get(reportFile), json.getBytes(StandardCharsets.UTF_8));
+                            System.out.println(report);
+                        }
+                    });
+                    break;
                 case 0:
                     break;
                 default:
@@ -342,6 +520,8 @@ public class DebugMenu {
             System.out.println("2 - Delete bucket policy");
             System.out.println("3 - Print bucket policy");
             System.out.println("4 - Print bucket policy statements");
+            System.out.println("5 - Grant users read and write access to buckets");
+            System.out.println("6 - Check user access on all buckets");
             System.out.println("0 - Return to previous menu");
             option = getMenuOption();
 
@@ -376,6 +556,39 @@ public class DebugMenu {
                         s3Client.printPolicyStatements(bucketName);
                     });
                     break;
+                case 5:
+                    menuOptionEnter("Insert bucket names separated by commas:", () -> {
+                        List<String> bucketNames = Arrays.asList(stdIn.nextLine().split("\\s*,\\s*"));
+                        System.out.println("Insert user names separated by commas:");
+                        List<String> userIds = Arrays.asList(stdIn.nextLine().split("\\s*,\\s*"));
+                        System.out.println("Insert allowed ips separated by commas:");
+                        String allowedIps = stdIn.nextLine();
+                        PolicyBatch batch = s3Client.newPolicyBatch();
+                        bucketNames.forEach(bucketName -> userIds.forEach(userId -> batch
+                            .addReadStatement(bucketName, userId, allowedIps)
+                            .addWriteStatement(bucketName, userId, allowedIps)));
+                        PolicyBatch.Report report = batch.apply();
+                        System.out.println(report);
+                        report.printFailures();
+                    });
+                    break;
+                case 6:
+                    menuOptionEnter("Insert user name:", () -> {
+                        String userId = stdIn.nextLine();
+                        System.out.println("Insert action (e.g. s3:GetObject):");
+                        String action = stdIn.nextLine();
+                        System.out.println("Insert source ip:");
+                        String sourceIp = stdIn.nextLine();
+                        List<String> bucketNames = s3Client.getBucketList().stream()
+                            .map(Bucket::getName)
+                            .collect(Collectors.toList());
+                        PolicyEvaluator evaluator = s3Client.newPolicyEvaluator(bucketNames, 16);
+                        evaluator.evaluateAll(userId, action, "*", sourceIp).forEach((bucketName, decision) ->
+                            System.out.println("\t" + bucketName + ": " + decision));
+                        evaluator.getLoadFailures().forEach((bucketName, message) ->
+                            System.err.println("\t" + bucketName + ": " + message));
+                    });
+                    break;
                 case 0:
                     break;
                 default:
@@ -440,6 +653,14 @@ public class DebugMenu {
         System.out.println(SPACER + "\n\n");
     }
 
+    private static void printPurgeReport(PurgeReport report) {
+        System.out.println(report);
+        if (!report.isComplete()) {
+            System.err.println("Bucket \"" + report.getBucketName() + "\" was not removed, failed keys:");
+            report.printFailures();
+        }
+    }
+
     private static int getMenuOption() {
         try {
             return Integer.parseInt(stdIn.nextLine());
@@ -455,7 +676,7 @@ public class DebugMenu {
 
     public static S3Client getS3Client(String userKey, LocalConfig config) {
         return new S3Client(config.get("endpoint"), config.get("region"), config.getUserKey(userKey, "access-key"),
-            config.getUserKey(userKey, "secret-key"));
+            config.getUserKey(userKey, "secret-key"), config.getClientConfiguration());
     }
 
     public static RgwAdminClient getRgwAdmin(String adminKey, LocalConfig config) {
@@ -1,9 +1,4 @@
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import org.twonote.rgwadmin4j.RgwAdmin;
 import org.twonote.rgwadmin4j.RgwAdminBuilder;
 import org.twonote.rgwadmin4j.model.BucketInfo;
@@ -23,14 +18,9 @@ public class Demo {
             .endpoint(localConfig.get("admin-endpoint"))
             .build();
 
-        AWSCredentials credentials = new BasicAWSCredentials("GFZN9T55QQB0ZAP3MFZK", "hjwZHVPV2dgg8nETdF4ODLOSrfugqMB5z0sHJa39");
-        AwsClientBuilder.EndpointConfiguration config = new AwsClientBuilder
-            .EndpointConfiguration("http://127.0.0.1:8000", "eu-central-1");
-        AmazonS3 s3Admin = AmazonS3ClientBuilder
-            .standard()
-            .withCredentials(new AWSStaticCredentialsProvider(credentials))
-            .withEndpointConfiguration(config)
-            .build();
+        AmazonS3 s3Admin = S3ClientRegistry.getClient(localConfig.get("endpoint"), localConfig.get("region"),
+            localConfig.getUserKey("nano", "access-key"), localConfig.getUserKey("nano", "secret-key"),
+            localConfig.getClientConfiguration());
 
         //        System.out.println(rgwAdmin.getUserQuota("sbd.zhh2.dev").get().getMaxSizeKb());
         //        System.out.println(rgwAdmin.getUserQuota("sbd.zhh2.test").get().getMaxSizeKb());
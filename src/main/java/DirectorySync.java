@@ -0,0 +1,153 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Mirrors a local directory tree into a bucket. The bucket is listed once as a stream and every remote key is
+ * matched against the local file with the same relative path while the listing is still running:
+ * <ul>
+ *     <li>no remote key or a different size: the file is uploaded</li>
+ *     <li>same size and the file was not modified after the object: the file is skipped</li>
+ *     <li>same size but modified after the object: the file is skipped only if its ETag still matches</li>
+ * </ul>
+ * Uploads and ETag checks run on {@code concurrency} workers. Remote keys with no local file are deleted in
+ * batches at the end when requested.
+ */
+public class DirectorySync {
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private final S3Client s3Client;
+    private final int concurrency;
+
+    public DirectorySync(S3Client s3Client) {
+        this(s3Client, DEFAULT_CONCURRENCY);
+    }
+
+    public DirectorySync(S3Client s3Client, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.s3Client = s3Client;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param bucketName    target bucket
+     * @param prefix        key prefix the tree is stored under, may be empty
+     * @param directory     local directory to upload
+     * @param deleteOrphans whether keys under the prefix without a local file are deleted
+     * @return counts of uploaded, unchanged, orphaned, deleted and failed keys
+     */
+    public SyncReport sync(String bucketName, String prefix, Path directory, boolean deleteOrphans)
+        throws IOException {
+        String keyPrefix = prefix == null ? "" : prefix;
+        Map<String, Path> localFiles = listLocalFiles(directory, keyPrefix);
+        List<String> orphans = new ArrayList<>();
+        SyncReport report = new SyncReport(bucketName);
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        try (Stream<S3ObjectSummary> remote = s3Client.getBucketObjectListing(bucketName, keyPrefix)) {
+            remote.forEach(summary -> {
+                Path file = localFiles.remove(summary.getKey());
+                if (file == null) {
+                    report.addOrphaned();
+                    if (deleteOrphans) {
+                        orphans.add(summary.getKey());
+                    }
+                } else {
+                    submit(executor, inFlight, () -> syncFile(bucketName, summary.getKey(), file, summary, report));
+                }
+            });
+            localFiles.forEach((key, file) ->
+                submit(executor, inFlight, () -> syncFile(bucketName, key, file, null, report)));
+            acquire(inFlight, concurrency * 2);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (deleteOrphans && !orphans.isEmpty()) {
+            report.addDeleted(s3Client.removeObjectsFromBucket(bucketName, orphans));
+        }
+        return report;
+    }
+
+    private void syncFile(String bucketName, String key, Path file, S3ObjectSummary remote, SyncReport report) {
+        try {
+            if (remote != null && isUnchanged(file, remote)) {
+                report.addUnchanged();
+                return;
+            }
+            s3Client.addObjectToBucket(bucketName, key, file.toFile());
+            report.addUploaded(Files.size(file));
+        } catch (AmazonServiceException e) {
+            report.addFailure(key, e.getErrorCode(), e.getErrorMessage());
+        } catch (IOException | SdkClientException e) {
+            report.addFailure(key, "ClientError", e.getMessage());
+        } catch (RuntimeException e) {
+            // anything else would end the pool thread silently and leave the key out of the report
+            report.addFailure(key, e.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+
+    private boolean isUnchanged(Path file, S3ObjectSummary remote) throws IOException {
+        if (Files.size(file) != remote.getSize()) {
+            return false;
+        }
+        if (Files.getLastModifiedTime(file).toMillis() <= remote.getLastModified().getTime()) {
+            return true;
+        }
+        return s3Client.computeETag(file.toFile()).equalsIgnoreCase(remote.getETag().replace("\"", ""));
+    }
+
+    private static Map<String, Path> listLocalFiles(Path directory, String keyPrefix) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toMap(
+                file -> keyPrefix + toKey(directory.relativize(file)), file -> file, (a, b) -> a, TreeMap::new));
+        }
+    }
+
+    private static String toKey(Path relativePath) {
+        List<String> names = new ArrayList<>();
+        Iterator<Path> iterator = relativePath.iterator();
+        while (iterator.hasNext()) {
+            names.add(iterator.next().toString());
+        }
+        return String.join("/", names);
+    }
+
+    private static void submit(ExecutorService executor, Semaphore inFlight, Runnable task) {
+        acquire(inFlight, 1);
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private static void acquire(Semaphore inFlight, int permits) {
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Directory sync was interrupted");
+        }
+    }
+}
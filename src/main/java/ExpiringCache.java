@@ -0,0 +1,184 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Small thread-safe cache with a time-to-live per entry and least-recently-used eviction once
+ * {@code maxSize} entries are held. Null values are cached like any other value. Concurrent misses on the same
+ * key share a single load.
+ */
+public class ExpiringCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, CachedValue<V>> entries;
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+    private long hits;
+    private long misses;
+    private long coalesced;
+
+    public ExpiringCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                return size() > ExpiringCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the key, loading and caching it when it is missing or expired. The loader
+     * runs outside the cache lock, so a slow load does not block other keys, and callers missing the same key
+     * while it is loading wait for that load instead of starting their own.
+     *
+     * @param key    key to look up
+     * @param loader computes the value on a miss, exceptions are passed to every waiting caller and nothing is
+     *               cached
+     * @return cached or freshly loaded value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> load;
+        boolean owner = false;
+        synchronized (entries) {
+            CachedValue<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired()) {
+                hits++;
+                return entry.value;
+            }
+            load = loading.get(key);
+            if (load != null) {
+                coalesced++;
+            } else {
+                misses++;
+                owner = true;
+                load = new CompletableFuture<>();
+                loading.put(key, load);
+            }
+        }
+        if (!owner) {
+            return join(load);
+        }
+
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                loading.remove(key, load);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (entries) {
+            // an invalidation while loading means the value may predate the change, so it is returned but not kept
+            if (loading.remove(key, load)) {
+                entries.put(key, new CachedValue<>(value, System.nanoTime() + ttlNanos));
+            }
+        }
+        load.complete(value);
+        return value;
+    }
+
+    public boolean contains(K key) {
+        synchronized (entries) {
+            CachedValue<V> entry = entries.get(key);
+            return entry != null && !entry.isExpired();
+        }
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            loading.remove(key);
+            entries.put(key, new CachedValue<>(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            loading.remove(key);
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            loading.clear();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    public long getMissCount() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    public long getCoalescedCount() {
+        synchronized (entries) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * @return share of lookups that did not start a load, either served from cache or joined to a running load
+     */
+    public double getHitRate() {
+        synchronized (entries) {
+            long requests = hits + misses + coalesced;
+            return requests == 0 ? 0 : (double) (hits + coalesced) / requests;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (entries) {
+            return "size=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", coalesced=" + coalesced
+                + String.format(", hit rate=%.1f%%", getHitRate() * 100);
+        }
+    }
+
+    private V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class CachedValue<V> {
+        private final V value;
+        private final long expiresAt;
+
+        CachedValue(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
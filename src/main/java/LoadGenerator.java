@@ -0,0 +1,291 @@
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.model.S3Object;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless load generator built on S3Client. Every worker runs a weighted mix of put, get, list and delete
+ * operations against a fixed key space until the duration elapses, then throughput and latency percentiles are
+ * printed per operation.
+ *
+ * <p>Arguments use the form {@code --name=value}:
+ * <ul>
+ *     <li>{@code user}: user from the local config, default "nano"</li>
+ *     <li>{@code bucket}: target bucket, created if missing, default "load-test"</li>
+ *     <li>{@code mix}: operation weights, default "put:30,get:60,list:5,delete:5"</li>
+ *     <li>{@code sizes}: object size weights with k/m/g suffixes, default "4k:70,64k:25,1m:5"</li>
+ *     <li>{@code keys}: number of distinct keys, default 10000</li>
+ *     <li>{@code concurrency}: worker threads, default 16</li>
+ *     <li>{@code duration}: run time in seconds, default 60</li>
+ * </ul>
+ */
+public class LoadGenerator {
+    private static final String KEY_PREFIX = "load/";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final Weighted<Operation> mix;
+    private final Weighted<File> sizes;
+    private final int keys;
+    private final int concurrency;
+    private final long durationSeconds;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private long elapsedNanos;
+
+    public LoadGenerator(S3Client s3Client, String bucketName, Weighted<Operation> mix, Weighted<File> sizes,
+        int keys, int concurrency, long durationSeconds) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.mix = mix;
+        this.sizes = sizes;
+        this.keys = keys;
+        this.concurrency = concurrency;
+        this.durationSeconds = durationSeconds;
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        LocalConfig config = new LocalConfig(DebugMenu.CONFIG_LOCATION);
+        MetricsServer metricsServer = MetricsServer.startFromConfig(config);
+        S3Client s3Client = DebugMenu.getS3Client(options.getOrDefault("user", "nano"), config);
+        String bucketName = options.getOrDefault("bucket", "load-test");
+        if (!s3Client.doesBucketExist(bucketName)) {
+            s3Client.createBucket(bucketName);
+        }
+
+        File directory = Files.createTempDirectory("load-generator").toFile();
+        try {
+            LoadGenerator generator = new LoadGenerator(s3Client, bucketName,
+                parseMix(options.getOrDefault("mix", "put:30,get:60,list:5,delete:5")),
+                parseSizes(options.getOrDefault("sizes", "4k:70,64k:25,1m:5"), directory),
+                Integer.parseInt(options.getOrDefault("keys", "10000")),
+                Integer.parseInt(options.getOrDefault("concurrency", "16")),
+                Long.parseLong(options.getOrDefault("duration", "60")));
+            generator.run();
+            generator.printReport();
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+            S3ClientRegistry.shutdownAll();
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+        }
+    }
+
+    public void run() throws InterruptedException {
+        System.out.println("Running " + concurrency + " workers for " + durationSeconds + "s against bucket \""
+            + bucketName + "\"");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    runOperation(mix.next());
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(durationSeconds + 60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public void printReport() {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format("%-8s %10s %8s %8s %10s %10s %10s %10s %10s %10s",
+            "op", "count", "errors", "404", "ops/s", "MB/s", "p50(us)", "p99(us)", "p999(us)", "max(us)"));
+        stats.forEach((operation, operationStats) -> {
+            LatencyHistogram latency = operationStats.latency;
+            System.out.println(String.format("%-8s %10d %8d %8d %10.1f %10.2f %10d %10d %10d %10d",
+                operation.name().toLowerCase(),
+                latency.getCount(),
+                operationStats.errors.get(),
+                operationStats.notFound.get(),
+                latency.getCount() / seconds,
+                operationStats.bytes.get() / seconds / (1024 * 1024),
+                latency.getPercentileMicros(50),
+                latency.getPercentileMicros(99),
+                latency.getPercentileMicros(99.9),
+                latency.getMaxMicros()));
+        });
+    }
+
+    private void runOperation(Operation operation) {
+        OperationStats operationStats = stats.get(operation);
+        String key = KEY_PREFIX + String.format("%08d", ThreadLocalRandom.current().nextInt(keys));
+        long start = System.nanoTime();
+        try {
+            long bytes = execute(operation, key);
+            operationStats.bytes.addAndGet(bytes);
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() == 404) {
+                operationStats.notFound.incrementAndGet();
+            } else {
+                operationStats.errors.incrementAndGet();
+            }
+        } catch (Exception e) {
+            operationStats.errors.incrementAndGet();
+        }
+        operationStats.latency.recordNanos(System.nanoTime() - start);
+    }
+
+    private long execute(Operation operation, String key) throws IOException {
+        switch (operation) {
+            case PUT:
+                File body = sizes.next();
+                s3Client.addObjectToBucket(bucketName, key, body);
+                return body.length();
+            case GET:
+                S3Object object = s3Client.getObjectFromBucket(bucketName, key);
+                long read = 0;
+                byte[] buffer = new byte[BUFFER_SIZE];
+                try (InputStream input = object.getObjectContent()) {
+                    for (int n = input.read(buffer); n != -1; n = input.read(buffer)) {
+                        read += n;
+                    }
+                }
+                return read;
+            case LIST:
+                s3Client.getBucketObjectPage(bucketName, KEY_PREFIX, key, LIST_PAGE_SIZE);
+                return 0;
+            case DELETE:
+                s3Client.removeObjectFromBucket(bucketName, key);
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid argument \"" + arg + "\", expected --name=value");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    static Weighted<Operation> parseMix(String mix) {
+        Weighted<Operation> operations = new Weighted<>();
+        parseWeights(mix).forEach((name, weight) -> operations.add(Operation.valueOf(name.toUpperCase()), weight));
+        return operations;
+    }
+
+    /**
+     * Creates one file of random content per size class, every put of that class uploads the same file
+     */
+    static Weighted<File> parseSizes(String sizes, File directory) throws IOException {
+        Weighted<File> files = new Weighted<>();
+        Random random = new Random();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (Map.Entry<String, Integer> size : parseWeights(sizes).entrySet()) {
+            File file = new File(directory, "object-" + size.getKey());
+            long length = parseSize(size.getKey());
+            try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+                for (long written = 0; written < length; written += buffer.length) {
+                    random.nextBytes(buffer);
+                    output.write(buffer, 0, (int) Math.min(buffer.length, length - written));
+                }
+            }
+            files.add(file, size.getValue());
+        }
+        return files;
+    }
+
+    private static Map<String, Integer> parseWeights(String weights) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String entry : weights.split(",")) {
+            String[] parts = entry.trim().split(":");
+            parsed.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return parsed;
+    }
+
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase();
+        long multiplier = 1;
+        switch (value.charAt(value.length() - 1)) {
+            case 'k':
+                multiplier = 1024;
+                break;
+            case 'm':
+                multiplier = 1024 * 1024;
+                break;
+            case 'g':
+                multiplier = 1024 * 1024 * 1024;
+                break;
+            default:
+                return Long.parseLong(value);
+        }
+        return Long.parseLong(value.substring(0, value.length() - 1)) * multiplier;
+    }
+
+    public enum Operation {
+        PUT, GET, LIST, DELETE
+    }
+
+    private static class OperationStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong notFound = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+
+    /**
+     * Picks values at random in proportion to their weights
+     */
+    public static class Weighted<T> {
+        private final List<T> values = new ArrayList<>();
+        private final List<Integer> cumulativeWeights = new ArrayList<>();
+        private int totalWeight;
+
+        public void add(T value, int weight) {
+            if (weight <= 0) {
+                return;
+            }
+            totalWeight += weight;
+            values.add(value);
+            cumulativeWeights.add(totalWeight);
+        }
+
+        public T next() {
+            int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+            for (int i = 0; i < values.size(); i++) {
+                if (pick < cumulativeWeights.get(i)) {
+                    return values.get(i);
+                }
+            }
+            throw new IllegalStateException("No values to pick from");
+        }
+    }
+}
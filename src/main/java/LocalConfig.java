@@ -1,3 +1,4 @@
+import com.amazonaws.ClientConfiguration;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
@@ -17,6 +18,10 @@ public class LocalConfig {
         return config.getString(key);
     }
 
+    public int getInt(String key, int defaultValue) {
+        return config.optInt(key, defaultValue);
+    }
+
     public String getUserKey(String userName, String key) {
         JSONArray users = config.getJSONArray("users");
         String userKey = "";
@@ -29,6 +34,31 @@ public class LocalConfig {
         return userKey;
     }
 
+    /**
+     * Builds the S3 client configuration from the optional "http" section of the config, every setting that is
+     * left out keeps the SDK default
+     *
+     * @return client configuration for S3 clients created from this config
+     */
+    public ClientConfiguration getClientConfiguration() {
+        ClientConfiguration clientConfig = S3ClientRegistry.getDefaultClientConfiguration();
+        JSONObject http = config.optJSONObject("http");
+        if (http == null) {
+            return clientConfig;
+        }
+        clientConfig.setMaxConnections(http.optInt("max-connections", clientConfig.getMaxConnections()));
+        clientConfig.setConnectionTTL(http.optLong("connection-ttl-ms", clientConfig.getConnectionTTL()));
+        clientConfig.setConnectionMaxIdleMillis(
+            http.optLong("connection-max-idle-ms", clientConfig.getConnectionMaxIdleMillis()));
+        clientConfig.setUseTcpKeepAlive(http.optBoolean("tcp-keep-alive", clientConfig.useTcpKeepAlive()));
+        clientConfig.setSocketTimeout(http.optInt("socket-timeout-ms", clientConfig.getSocketTimeout()));
+        clientConfig.setConnectionTimeout(http.optInt("connect-timeout-ms", clientConfig.getConnectionTimeout()));
+        int[] bufferSizes = clientConfig.getSocketBufferSizeHints();
+        clientConfig.setSocketBufferSizeHints(http.optInt("socket-send-buffer-size", bufferSizes[0]),
+            http.optInt("socket-receive-buffer-size", bufferSizes[1]));
+        return clientConfig;
+    }
+
     private JSONObject getConfigJObject(String location) throws FileNotFoundException {
         BufferedReader reader = new BufferedReader(
                 new FileReader(location)
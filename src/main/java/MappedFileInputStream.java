@@ -0,0 +1,195 @@
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a region of a file through a read only memory mapping, so the SDK copies the bytes straight from the
+ * page cache into its send buffer instead of going through a read syscall and an intermediate buffer. Only the
+ * region is mapped, in windows of at most {@link #WINDOW_SIZE} bytes, and a window is unmapped as soon as the
+ * stream moves past it or is closed rather than whenever the garbage collector gets to it.
+ *
+ * <p>The stream can be reset to any earlier position, as the SDK does when it retries a request. A file truncated
+ * while it is mapped fails the read with an IOException, like a file read through a channel would: the file size
+ * is checked before every read, since touching a mapped page past the end of the file is not reported as an I/O
+ * error.
+ */
+public class MappedFileInputStream extends InputStream {
+    static final long WINDOW_SIZE = 1L << 30;
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // without access to the cleaner, windows are unmapped by the garbage collector instead
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long mark;
+    private boolean closed;
+
+    public MappedFileInputStream(File file) throws IOException {
+        this(file, 0, file.length());
+    }
+
+    /**
+     * @param file   file to read
+     * @param offset position of the region in the file
+     * @param length length of the region in bytes
+     */
+    public MappedFileInputStream(File file, long offset, long length) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        if (offset + length > channel.size()) {
+            channel.close();
+            throw new EOFException("File \"" + file.getPath() + "\" is shorter than " + (offset + length)
+                + " bytes");
+        }
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (position == length) {
+            return -1;
+        }
+        MappedByteBuffer source = getWindow();
+        checkSize(position + 1);
+        int value;
+        try {
+            value = source.get((int) (position - windowStart)) & 0xff;
+        } catch (InternalError e) {
+            throw truncated(e);
+        }
+        position++;
+        return value;
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == length) {
+            return -1;
+        }
+        MappedByteBuffer source = getWindow();
+        source.position((int) (position - windowStart));
+        int n = Math.min(len, source.remaining());
+        checkSize(position + n);
+        try {
+            source.get(buffer, off, n);
+        } catch (InternalError e) {
+            throw truncated(e);
+        }
+        position += n;
+        return n;
+    }
+
+    @Override
+    public synchronized long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, length - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public synchronized int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        position = mark;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        unmap(window);
+        window = null;
+        channel.close();
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    protected synchronized long getPosition() {
+        return position;
+    }
+
+    private MappedByteBuffer getWindow() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+        if (window == null || position < windowStart || position >= windowStart + window.capacity()) {
+            unmap(window);
+            window = null;
+            windowStart = position - position % WINDOW_SIZE;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset + windowStart,
+                Math.min(WINDOW_SIZE, length - windowStart));
+        }
+        return window;
+    }
+
+    private void checkSize(long end) throws IOException {
+        if (channel.size() < offset + end) {
+            throw truncated(null);
+        }
+    }
+
+    /**
+     * Reading a mapped page past the end of a file that was truncated raises SIGBUS, which the JVM turns into an
+     * InternalError that callers handling IOException would not expect. The error can still surface for a
+     * truncation racing the size check.
+     */
+    private IOException truncated(InternalError e) {
+        return new IOException("File \"" + file.getPath() + "\" was truncated while it was read", e);
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Unable to unmap file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the per-request {@link ClientMetrics} in the Prometheus text format on {@code /metrics}, bound to
+ * localhost only.
+ */
+public class MetricsServer {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final HttpServer server;
+
+    public MetricsServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/metrics", this::handle);
+    }
+
+    /**
+     * Starts the endpoint when the config sets "metrics-port"
+     *
+     * @param config local config
+     * @return the started server, null if no port is configured
+     */
+    public static MetricsServer startFromConfig(LocalConfig config) throws IOException {
+        int port = config.getInt("metrics-port", -1);
+        if (port < 0) {
+            return null;
+        }
+        MetricsServer metricsServer = new MetricsServer(port);
+        metricsServer.start();
+        return metricsServer;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    static String render() {
+        StringBuilder text = new StringBuilder();
+        text.append("# TYPE rgw_client_requests_total counter\n");
+        ClientMetrics.getOperations().forEach(metrics ->
+            line(text, "rgw_client_requests_total", labels(metrics), metrics.getCalls()));
+        text.append("# TYPE rgw_client_request_errors_total counter\n");
+        ClientMetrics.getOperations().forEach(metrics -> metrics.getErrorCounts().forEach((status, count) ->
+            line(text, "rgw_client_request_errors_total", labels(metrics) + ",status=\"" + status + "\"", count)));
+        text.append("# TYPE rgw_client_request_bytes_total counter\n");
+        ClientMetrics.getOperations().forEach(metrics ->
+            line(text, "rgw_client_request_bytes_total", labels(metrics), metrics.getBytes()));
+        text.append("# TYPE rgw_client_request_latency_seconds summary\n");
+        ClientMetrics.getOperations().forEach(metrics -> {
+            for (double quantile : QUANTILES) {
+                line(text, "rgw_client_request_latency_seconds", labels(metrics) + ",quantile=\"" + quantile + "\"",
+                    metrics.getLatency().getPercentileMicros(quantile * 100) / 1e6);
+            }
+            line(text, "rgw_client_request_latency_seconds_sum", labels(metrics),
+                metrics.getLatency().getTotalMicros() / 1e6);
+            line(text, "rgw_client_request_latency_seconds_count", labels(metrics), metrics.getLatency().getCount());
+        });
+        text.append("# TYPE rgw_client_concurrency_limit gauge\n");
+        AdaptiveLimiter.getLimiters().forEach(limiter ->
+            line(text, "rgw_client_concurrency_limit", limiterLabels(limiter), limiter.getLimit()));
+        text.append("# TYPE rgw_client_in_flight gauge\n");
+        AdaptiveLimiter.getLimiters().forEach(limiter ->
+            line(text, "rgw_client_in_flight", limiterLabels(limiter), limiter.getInFlight()));
+        text.append("# TYPE rgw_client_throttled_total counter\n");
+        AdaptiveLimiter.getLimiters().forEach(limiter ->
+            line(text, "rgw_client_throttled_total", limiterLabels(limiter), limiter.getThrottled()));
+        return text.toString();
+    }
+
+    private static String limiterLabels(AdaptiveLimiter limiter) {
+        return "client=\"" + limiter.getName() + "\"";
+    }
+
+    private static String labels(OperationMetrics metrics) {
+        return "client=\"" + metrics.getClient() + "\",request=\"" + metrics.getOperation() + "\"";
+    }
+
+    private static void line(StringBuilder text, String name, String labels, Number value) {
+        text.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+}
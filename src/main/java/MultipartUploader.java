@@ -0,0 +1,202 @@
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.util.BinaryUtils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Uploads a local file as an S3 multipart upload. Every part is read from a memory mapping of its own region of
+ * the file, so no part is ever buffered on the heap, and at most {@code concurrency} parts are on the wire at once.
+ */
+public class MultipartUploader {
+    public static final long DEFAULT_THRESHOLD = 64L * 1024 * 1024;
+    public static final long DEFAULT_PART_SIZE = 16L * 1024 * 1024;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AmazonS3 client;
+    private final long threshold;
+    private final long partSize;
+    private final int concurrency;
+
+    public MultipartUploader(AmazonS3 client) {
+        this(client, DEFAULT_THRESHOLD, DEFAULT_PART_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    public MultipartUploader(AmazonS3 client, long threshold, long partSize, int concurrency) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("Part size must be at least " + MIN_PART_SIZE + " bytes");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.client = client;
+        this.threshold = threshold;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+    }
+
+    public boolean shouldUpload(File file) {
+        return file.length() >= threshold;
+    }
+
+    /**
+     * Uploads the given file in parts, aborting the multipart upload if any part fails
+     *
+     * @param bucketName target bucket
+     * @param key        target object key
+     * @param file       local file to upload
+     * @param metadata   object metadata, content length is ignored since it is computed per part
+     * @return result of the completed multipart upload
+     */
+    public CompleteMultipartUploadResult upload(String bucketName, String key, File file, ObjectMetadata metadata)
+        throws IOException {
+        long length = file.length();
+        long size = getPartSize(length);
+        String uploadId = client.initiateMultipartUpload(
+            new InitiateMultipartUploadRequest(bucketName, key, getInitiateMetadata(metadata))).getUploadId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<PartETag>> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < length; offset += size, partNumber++) {
+                UploadPartRequest request = new UploadPartRequest()
+                    .withBucketName(bucketName)
+                    .withKey(key)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withFile(file)
+                    .withFileOffset(offset)
+                    .withPartSize(Math.min(size, length - offset))
+                    .withLastPart(offset + size >= length);
+                parts.add(executor.submit(() -> uploadPart(request)));
+            }
+
+            List<PartETag> partETags = new ArrayList<>(parts.size());
+            for (Future<PartETag> part : parts) {
+                partETags.add(part.get());
+            }
+            return client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucketName, key, uploadId);
+            throw new InterruptedIOException("Upload of \"" + key + "\" was interrupted");
+        } catch (ExecutionException e) {
+            abort(bucketName, key, uploadId);
+            if (e.getCause() instanceof SdkClientException) {
+                throw (SdkClientException) e.getCause();
+            }
+            throw new IOException("Upload of \"" + key + "\" failed", e.getCause());
+        } catch (RuntimeException e) {
+            abort(bucketName, key, uploadId);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes the ETag the file gets when uploaded through S3Client: the MD5 of the content below the threshold,
+     * the MD5 of the concatenated part MD5s followed by the part count above it
+     *
+     * @param file local file
+     * @return expected ETag in lower case hex, without quotes
+     */
+    public String getETag(File file) throws IOException {
+        long length = file.length();
+        MessageDigest digest = newMd5();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = new FileInputStream(file)) {
+            if (!shouldUpload(file)) {
+                for (int n = input.read(buffer); n != -1; n = input.read(buffer)) {
+                    digest.update(buffer, 0, n);
+                }
+                return BinaryUtils.toHex(digest.digest());
+            }
+            long size = getPartSize(length);
+            MessageDigest partsDigest = newMd5();
+            int parts = 0;
+            for (long offset = 0; offset < length; offset += size, parts++) {
+                long remaining = Math.min(size, length - offset);
+                while (remaining > 0) {
+                    int n = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (n == -1) {
+                        throw new EOFException("File \"" + file.getPath() + "\" changed while hashing");
+                    }
+                    digest.update(buffer, 0, n);
+                    remaining -= n;
+                }
+                partsDigest.update(digest.digest());
+            }
+            return BinaryUtils.toHex(partsDigest.digest()) + "-" + parts;
+        }
+    }
+
+    /**
+     * Sends the part's file region from a memory mapping of that region alone, the mapping is made here so that
+     * only the parts on the wire hold a file handle and address space
+     */
+    private PartETag uploadPart(UploadPartRequest request) throws IOException {
+        File file = request.getFile();
+        long offset = request.getFileOffset();
+        long size = request.getPartSize();
+        request.withFile(null).withFileOffset(0);
+        try (MappedFileInputStream input = new MappedFileInputStream(file, offset, size)) {
+            return client.uploadPart(request.withInputStream(input)).getPartETag();
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long getPartSize(long length) {
+        long minForLength = (length + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(partSize, minForLength);
+    }
+
+    private ObjectMetadata getInitiateMetadata(ObjectMetadata metadata) {
+        ObjectMetadata initiateMetadata = new ObjectMetadata();
+        initiateMetadata.setUserMetadata(metadata.getUserMetadata());
+        if (metadata.getContentType() != null) {
+            initiateMetadata.setContentType(metadata.getContentType());
+        }
+        return initiateMetadata;
+    }
+
+    private void abort(String bucketName, String key, String uploadId) {
+        try {
+            client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (SdkClientException e) {
+            System.err.println("Unable to abort upload of \"" + key + "\": " + e.getMessage());
+        }
+    }
+}
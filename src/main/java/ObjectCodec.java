@@ -0,0 +1,119 @@
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression applied to object content on upload. The codec's format name is stored under {@link #METADATA_KEY}
+ * so downloads can decompress without the caller knowing how the object was written. Codecs sharing a format,
+ * such as the gzip levels, decode with the same format name. Every constant supplies its own streams, so a new
+ * format is a new constant. LZ4 and zstd write the standard frame formats read by the lz4 and zstd tools.
+ */
+public enum ObjectCodec {
+    GZIP("gzip") {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return gzip(output, Deflater.DEFAULT_COMPRESSION);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new GZIPInputStream(input, BUFFER_SIZE);
+        }
+    },
+    GZIP_FAST("gzip") {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return gzip(output, Deflater.BEST_SPEED);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return GZIP.decompress(input);
+        }
+    },
+    LZ4("lz4") {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new LZ4FrameOutputStream(output);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new LZ4FrameInputStream(input);
+        }
+    },
+    ZSTD("zstd") {
+        @Override
+        public OutputStream compress(OutputStream output) throws IOException {
+            return new ZstdOutputStream(output, ZSTD_LEVEL);
+        }
+
+        @Override
+        public InputStream decompress(InputStream input) throws IOException {
+            return new ZstdInputStream(input);
+        }
+    };
+
+    /**
+     * User metadata key holding the format name of the codec the content was compressed with, namespaced so that
+     * metadata written by other tools is not mistaken for it
+     */
+    public static final String METADATA_KEY = "rgw-client-codec";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ZSTD_LEVEL = 3;
+
+    private final String formatName;
+
+    ObjectCodec(String formatName) {
+        this.formatName = formatName;
+    }
+
+    public String getFormatName() {
+        return formatName;
+    }
+
+    /**
+     * @param output stream receiving the compressed bytes, closed with the returned stream
+     * @return stream compressing what is written to it
+     */
+    public abstract OutputStream compress(OutputStream output) throws IOException;
+
+    /**
+     * @param input stream of compressed bytes, closed with the returned stream
+     * @return stream of the decompressed bytes
+     */
+    public abstract InputStream decompress(InputStream input) throws IOException;
+
+    private static OutputStream gzip(OutputStream output, int level) throws IOException {
+        return new GZIPOutputStream(output, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * @param formatName format name read from {@link #METADATA_KEY}, may be null
+     * @return codec decoding the format, null when the content is not compressed or the format is unknown to this
+     * client, the content is then read as stored
+     */
+    public static ObjectCodec forFormat(String formatName) {
+        if (formatName == null) {
+            return null;
+        }
+        for (ObjectCodec codec : values()) {
+            if (codec.formatName.equals(formatName)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,104 @@
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily walks the pages of a ListObjectsV2 request. As soon as a page is handed to the caller the request for
+ * the following page is already on its way, so consuming a page overlaps with fetching the next one.
+ */
+public class ObjectListingIterator implements Iterator<ListObjectsV2Result> {
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "listing-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AmazonS3 client;
+    private final ListObjectsV2Request request;
+    private CompletableFuture<ListObjectsV2Result> nextPage;
+
+    public ObjectListingIterator(AmazonS3 client, ListObjectsV2Request request) {
+        this.client = client;
+        this.request = copy(request, request.getContinuationToken());
+        this.nextPage = fetch(request.getContinuationToken());
+    }
+
+    public static ObjectListingIterator of(AmazonS3 client, String bucketName, String prefix, String delimiter,
+        String startAfter) {
+        return new ObjectListingIterator(client, new ListObjectsV2Request()
+            .withBucketName(bucketName)
+            .withPrefix(prefix)
+            .withDelimiter(delimiter)
+            .withStartAfter(startAfter));
+    }
+
+    /**
+     * Streams every object summary matched by the request, fetching pages only as the stream is consumed
+     *
+     * @param client  client used to list the bucket
+     * @param request listing request, its continuation token is used as the starting point
+     * @return ordered stream of object summaries
+     */
+    public static Stream<S3ObjectSummary> stream(AmazonS3 client, ListObjectsV2Request request) {
+        return pages(client, request).flatMap(page -> page.getObjectSummaries().stream());
+    }
+
+    public static Stream<ListObjectsV2Result> pages(AmazonS3 client, ListObjectsV2Request request) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new ObjectListingIterator(client, request),
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextPage != null;
+    }
+
+    @Override
+    public ListObjectsV2Result next() {
+        if (nextPage == null) {
+            throw new NoSuchElementException();
+        }
+        ListObjectsV2Result page;
+        try {
+            page = nextPage.join();
+        } catch (CompletionException e) {
+            nextPage = null;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        nextPage = page.isTruncated() ? fetch(page.getNextContinuationToken()) : null;
+        return page;
+    }
+
+    private CompletableFuture<ListObjectsV2Result> fetch(String continuationToken) {
+        ListObjectsV2Request pageRequest = copy(request, continuationToken);
+        return CompletableFuture.supplyAsync(() -> client.listObjectsV2(pageRequest), PREFETCH);
+    }
+
+    private static ListObjectsV2Request copy(ListObjectsV2Request request, String continuationToken) {
+        return new ListObjectsV2Request()
+            .withBucketName(request.getBucketName())
+            .withPrefix(request.getPrefix())
+            .withDelimiter(request.getDelimiter())
+            .withStartAfter(request.getStartAfter())
+            .withMaxKeys(request.getMaxKeys())
+            .withEncodingType(request.getEncodingType())
+            .withFetchOwner(request.isFetchOwner())
+            .withRequesterPays(request.isRequesterPays())
+            .withContinuationToken(continuationToken);
+    }
+}
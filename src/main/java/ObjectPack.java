@@ -0,0 +1,152 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of a pack object, a single object holding many small members back to back followed by an index of
+ * their names, offsets and lengths. The layout is:
+ * <pre>
+ *     member data, concatenated
+ *     index: per member, unsigned short name length, UTF-8 name, long offset, long length
+ *     trailer: long index offset, int member count, int magic
+ * </pre>
+ * The index offset is also stored in the {@link #INDEX_OFFSET_KEY} user metadata, so a reader finds the index
+ * with a HEAD request and fetches it with a single ranged GET.
+ */
+public class ObjectPack {
+    public static final String INDEX_OFFSET_KEY = "pack-index-offset";
+    static final int TRAILER_SIZE = 16;
+    private static final int MAGIC = 0x4f504b31;
+    private static final int MAX_NAME_LENGTH = 0xffff;
+
+    private final String key;
+    private final String eTag;
+    private final List<Entry> entries;
+    private final Map<String, Entry> entriesByName = new HashMap<>();
+
+    ObjectPack(String key, String eTag, List<Entry> entries) {
+        this.key = key;
+        this.eTag = eTag;
+        this.entries = Collections.unmodifiableList(entries);
+        entries.forEach(entry -> entriesByName.put(entry.getName(), entry));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return ETag of the pack the index was read from, member reads are made conditional on it
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    public Entry get(String name) {
+        return entriesByName.get(name);
+    }
+
+    /**
+     * @return members in pack order
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Encodes the index and trailer to append after the member data
+     *
+     * @param entries     members in pack order
+     * @param indexOffset length of the member data, where the index starts
+     */
+    static byte[] encodeIndex(List<Entry> entries, long indexOffset) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            for (Entry entry : entries) {
+                byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+                output.writeShort(name.length);
+                output.write(name);
+                output.writeLong(entry.getOffset());
+                output.writeLong(entry.getLength());
+            }
+            output.writeLong(indexOffset);
+            output.writeInt(entries.size());
+            output.writeInt(MAGIC);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param key         key of the pack object
+     * @param eTag        ETag of the pack object
+     * @param index       bytes from the index offset to the end of the pack
+     * @param indexOffset position of the index in the pack
+     */
+    static ObjectPack decodeIndex(String key, String eTag, byte[] index, long indexOffset) {
+        if (index.length < TRAILER_SIZE) {
+            throw new IllegalArgumentException("Object \"" + key + "\" has no pack trailer");
+        }
+        ByteBuffer trailer = ByteBuffer.wrap(index, index.length - TRAILER_SIZE, TRAILER_SIZE);
+        long trailerIndexOffset = trailer.getLong();
+        int count = trailer.getInt();
+        if (trailer.getInt() != MAGIC || trailerIndexOffset != indexOffset) {
+            throw new IllegalArgumentException("Object \"" + key + "\" is not a valid pack");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(index, 0, index.length - TRAILER_SIZE);
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[buffer.getShort() & 0xffff];
+            buffer.get(name);
+            entries.add(new Entry(new String(name, StandardCharsets.UTF_8), buffer.getLong(), buffer.getLong()));
+        }
+        return new ObjectPack(key, eTag, entries);
+    }
+
+    static void checkName(String name) {
+        if (name.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Member name \"" + name + "\" is too long");
+        }
+    }
+
+    public static class Entry {
+        private final String name;
+        private final long offset;
+        private final long length;
+
+        Entry(String name, long offset, long length) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + length + " bytes at " + offset + ")";
+        }
+    }
+}
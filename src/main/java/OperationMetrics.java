@@ -0,0 +1,114 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call, byte, error and latency counters of one kind of SDK request, exposed over JMX as
+ * {@code radosgw.client:type=Request,client=...,name=...}.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String client;
+    private final String operation;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final ConcurrentMap<Integer, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public OperationMetrics(String client, String operation) {
+        this.client = client;
+        this.operation = operation;
+    }
+
+    public void record(long nanos, long byteCount) {
+        calls.incrementAndGet();
+        if (byteCount > 0) {
+            bytes.addAndGet(byteCount);
+        }
+        latency.recordNanos(nanos);
+    }
+
+    /**
+     * @param nanos  time the failed call took
+     * @param status HTTP status of the failure, 0 when no response was received
+     */
+    public void recordError(long nanos, int status) {
+        calls.incrementAndGet();
+        errors.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+        latency.recordNanos(nanos);
+    }
+
+    public String getClient() {
+        return client;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    /**
+     * @return error counts keyed by HTTP status, 0 counting failures without a response
+     */
+    public Map<Integer, Long> getErrorCounts() {
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        errors.forEach((status, count) -> byStatus.put(status, count.get()));
+        return byStatus;
+    }
+
+    @Override
+    public String getErrorsByStatus() {
+        return getErrorCounts().toString();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanMicros();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return latency.getPercentileMicros(50);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return latency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getP999Micros() {
+        return latency.getPercentileMicros(99.9);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return latency.getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s.%s: %d calls, %d errors %s, %d bytes, p50 %dus, p99 %dus, p999 %dus, max %dus",
+            client, operation, getCalls(), getErrors(), getErrorsByStatus(), getBytes(), getP50Micros(),
+            getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
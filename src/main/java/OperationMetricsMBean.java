@@ -0,0 +1,22 @@
+public interface OperationMetricsMBean {
+    long getCalls();
+
+    long getBytes();
+
+    long getErrors();
+
+    /**
+     * @return error counts keyed by HTTP status, e.g. "{0=1, 503=4}", 0 counting failures without a response
+     */
+    String getErrorsByStatus();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+}
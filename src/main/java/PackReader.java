@@ -0,0 +1,96 @@
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads members of {@link ObjectPack} objects. A pack's index is fetched once with a HEAD and a ranged GET and
+ * then cached, after which every member read is a single ranged GET made conditional on the pack's ETag. A pack
+ * replaced since its index was cached fails that condition, and the member is read again with a fresh index, as
+ * is a member missing from the cached index.
+ */
+public class PackReader {
+    private static final int INDEX_CACHE_SIZE = 4096;
+    private static final long INDEX_CACHE_TTL_MINUTES = 10;
+
+    private final AmazonS3 client;
+    private final ExpiringCache<String, ObjectPack> packs =
+        new ExpiringCache<>(INDEX_CACHE_SIZE, INDEX_CACHE_TTL_MINUTES, TimeUnit.MINUTES);
+
+    public PackReader(AmazonS3 client) {
+        this.client = client;
+    }
+
+    public ObjectPack getPack(String bucketName, String packKey) {
+        return packs.get(bucketName + "/" + packKey, cacheKey -> loadPack(bucketName, packKey));
+    }
+
+    /**
+     * @param bucketName bucket holding the pack
+     * @param packKey    key of the pack
+     * @param memberName name the member was added under
+     * @return object whose content is the member's bytes only
+     * @throws NoSuchElementException if the pack has no such member
+     */
+    public S3Object getMember(String bucketName, String packKey, String memberName) {
+        ObjectPack pack = getPack(bucketName, packKey);
+        S3Object object = pack.get(memberName) == null ? null : readMember(bucketName, pack, memberName);
+        if (object == null) {
+            packs.invalidate(bucketName + "/" + packKey);
+            object = readMember(bucketName, getPack(bucketName, packKey), memberName);
+        }
+        if (object == null) {
+            throw new IllegalStateException("Pack \"" + packKey + "\" keeps changing while being read");
+        }
+        return object;
+    }
+
+    public void invalidate(String bucketName, String packKey) {
+        packs.invalidate(bucketName + "/" + packKey);
+    }
+
+    private S3Object readMember(String bucketName, ObjectPack pack, String memberName) {
+        ObjectPack.Entry entry = pack.get(memberName);
+        if (entry == null) {
+            throw new NoSuchElementException("Pack \"" + pack.getKey() + "\" has no member \"" + memberName + "\"");
+        }
+        if (entry.getLength() == 0) {
+            S3Object object = new S3Object();
+            object.setBucketName(bucketName);
+            object.setKey(pack.getKey());
+            object.setObjectContent(new S3ObjectInputStream(new ByteArrayInputStream(new byte[0]), null));
+            return object;
+        }
+        return client.getObject(new GetObjectRequest(bucketName, pack.getKey())
+            .withRange(entry.getOffset(), entry.getOffset() + entry.getLength() - 1)
+            .withMatchingETagConstraint(pack.getETag()));
+    }
+
+    private ObjectPack loadPack(String bucketName, String packKey) {
+        ObjectMetadata metadata = client.getObjectMetadata(bucketName, packKey);
+        String indexOffsetValue = metadata.getUserMetaDataOf(ObjectPack.INDEX_OFFSET_KEY);
+        if (indexOffsetValue == null) {
+            throw new IllegalArgumentException("Object \"" + packKey + "\" is not a pack");
+        }
+        long indexOffset = Long.parseLong(indexOffsetValue);
+        S3Object index = client.getObject(new GetObjectRequest(bucketName, packKey)
+            .withRange(indexOffset, metadata.getContentLength() - 1)
+            .withMatchingETagConstraint(metadata.getETag()));
+        if (index == null) {
+            throw new IllegalStateException("Pack \"" + packKey + "\" changed while its index was read");
+        }
+        try (InputStream input = index.getObjectContent()) {
+            return ObjectPack.decodeIndex(packKey, metadata.getETag(), input.readAllBytes(), indexOffset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the index of pack \"" + packKey + "\"", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Packs small files into {@link ObjectPack} objects, so a gateway stores, lists and replicates one object per
+ * pack instead of one per file. Members are gathered in memory until the next one would push the pack past the
+ * pack size, then the pack is uploaded with a single PUT under {@code <prefix><writer id>-<sequence>.pack}.
+ * Closing the writer uploads the last pack.
+ */
+public class PackWriter implements AutoCloseable {
+    public static final int DEFAULT_PACK_SIZE = 32 * 1024 * 1024;
+    static final String PACK_SUFFIX = ".pack";
+
+    private final AmazonS3 client;
+    private final String bucketName;
+    private final String keyPrefix;
+    private final int packSize;
+    private final String writerId = UUID.randomUUID().toString();
+    private final PackBuffer data;
+    private final List<ObjectPack.Entry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final List<String> packKeys = new ArrayList<>();
+    private long members;
+
+    public PackWriter(AmazonS3 client, String bucketName, String keyPrefix) {
+        this(client, bucketName, keyPrefix, DEFAULT_PACK_SIZE);
+    }
+
+    public PackWriter(AmazonS3 client, String bucketName, String keyPrefix, int packSize) {
+        if (packSize < 1) {
+            throw new IllegalArgumentException("Pack size must be positive");
+        }
+        this.client = client;
+        this.bucketName = bucketName;
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+        this.packSize = packSize;
+        this.data = new PackBuffer(packSize);
+    }
+
+    /**
+     * @param name member name, unique within its pack
+     * @param file local file no larger than the pack size
+     */
+    public void add(String name, File file) throws IOException {
+        prepare(name, file.length());
+        long offset = data.size();
+        Files.copy(file.toPath(), data);
+        entries.add(new ObjectPack.Entry(name, offset, data.size() - offset));
+        members++;
+    }
+
+    public void add(String name, byte[] content) throws IOException {
+        prepare(name, content.length);
+        entries.add(new ObjectPack.Entry(name, data.size(), content.length));
+        data.write(content);
+        members++;
+    }
+
+    /**
+     * Uploads the members gathered so far as a pack
+     *
+     * @return key of the uploaded pack, null if there were no members
+     */
+    public String flush() {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        String key = keyPrefix + writerId + "-" + String.format("%05d", packKeys.size()) + PACK_SUFFIX;
+        long indexOffset = data.size();
+        data.writeBytes(ObjectPack.encodeIndex(entries, indexOffset));
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(data.size());
+        metadata.setContentType("application/octet-stream");
+        metadata.addUserMetadata(ObjectPack.INDEX_OFFSET_KEY, Long.toString(indexOffset));
+        client.putObject(new PutObjectRequest(bucketName, key, data.toInputStream(), metadata));
+
+        packKeys.add(key);
+        data.reset();
+        entries.clear();
+        names.clear();
+        return key;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    public List<String> getPackKeys() {
+        return new ArrayList<>(packKeys);
+    }
+
+    public long getMemberCount() {
+        return members;
+    }
+
+    private void prepare(String name, long length) {
+        ObjectPack.checkName(name);
+        if (length > packSize) {
+            throw new IllegalArgumentException("Member \"" + name + "\" is larger than the pack size");
+        }
+        if (!entries.isEmpty() && data.size() + length > packSize) {
+            flush();
+        }
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("Member \"" + name + "\" was already added to this pack");
+        }
+    }
+
+    /**
+     * Pack buffer that is uploaded in place instead of copied into a new array
+     */
+    private static class PackBuffer extends ByteArrayOutputStream {
+        PackBuffer(int size) {
+            super(size);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.auth.policy.Action;
+import com.amazonaws.auth.policy.Policy;
+import com.amazonaws.auth.policy.Principal;
+import com.amazonaws.auth.policy.Statement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Collects bucket policy changes for many users and buckets and applies them with one read-modify-write per
+ * bucket instead of one per change. Buckets are updated in parallel.
+ *
+ * <p>Policies have no conditional writes, so after writing a bucket's policy it is read back. If a concurrent
+ * edit dropped any of the batch's changes, the batch is applied again on top of the policy that won, up to
+ * {@link #MAX_ATTEMPTS} times before the bucket is reported as conflicting.
+ */
+public class PolicyBatch {
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final S3Client s3Client;
+    private final Map<String, List<Change>> changes = new LinkedHashMap<>();
+
+    public PolicyBatch(S3Client s3Client) {
+        this.s3Client = s3Client;
+    }
+
+    public PolicyBatch addReadStatement(String bucketName, String userId, String allowedIps) {
+        return addStatement(bucketName, userId, allowedIps, S3Client.READ_ACTIONS, S3Client.READ_STATEMENT);
+    }
+
+    public PolicyBatch addWriteStatement(String bucketName, String userId, String allowedIps) {
+        return addStatement(bucketName, userId, allowedIps, S3Client.WRITE_ACTIONS, S3Client.WRITE_STATEMENT);
+    }
+
+    /**
+     * Adds the statement {@link S3Client#updateBucketPolicy} would add, unless a statement with its id exists
+     */
+    public PolicyBatch addStatement(String bucketName, String userId, String allowedIps, List<Action> actions,
+        String statementType) {
+        return add(bucketName, new Change(s3Client.getStatementId(userId, statementType), null,
+            () -> s3Client.generateStatement(bucketName, userId, allowedIps, actions, statementType)));
+    }
+
+    /**
+     * Adds the statement {@link S3Client#disableUserPolicyControl} would add, unless it exists
+     */
+    public PolicyBatch disableUserPolicyControl(String bucketName, String userId) {
+        return add(bucketName, new Change(S3Client.ACLS_DISABLED_STATEMENT, null,
+            () -> s3Client.getDenyPolicyControlStatement(bucketName, userId)));
+    }
+
+    public PolicyBatch removeStatement(String bucketName, String statementId) {
+        return add(bucketName, new Change(statementId, null, null));
+    }
+
+    /**
+     * Removes every statement that has the user as a principal
+     */
+    public PolicyBatch removeUserStatements(String bucketName, String userId) {
+        return add(bucketName, new Change(null, s3Client.generatePrincipalId(userId), null));
+    }
+
+    public int getBucketCount() {
+        return changes.size();
+    }
+
+    public Report apply() {
+        return apply(DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param parallelism number of buckets updated at once
+     * @return outcome per bucket
+     */
+    public Report apply(int parallelism) {
+        Report report = new Report();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            changes.forEach((bucketName, bucketChanges) ->
+                executor.execute(() -> report.outcomes.put(bucketName, applyBucket(bucketName, bucketChanges))));
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Policy batch was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        return report;
+    }
+
+    private PolicyBatch add(String bucketName, Change change) {
+        changes.computeIfAbsent(bucketName, name -> new ArrayList<>()).add(change);
+        return this;
+    }
+
+    private Outcome applyBucket(String bucketName, List<Change> bucketChanges) {
+        try {
+            Policy policy = s3Client.getCurrentBucketPolicy(bucketName);
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                if (bucketChanges.stream().allMatch(change -> change.isApplied(policy.getStatements()))) {
+                    return attempt == 1 ? Outcome.UNCHANGED : Outcome.APPLIED;
+                }
+                Collection<Statement> statements = new ArrayList<>(policy.getStatements());
+                bucketChanges.forEach(change -> change.apply(statements));
+                policy.setStatements(statements);
+                if (statements.isEmpty()) {
+                    s3Client.deleteBucketPolicy(bucketName);
+                } else {
+                    s3Client.setBucketPolicy(bucketName, policy.toJson());
+                }
+                Policy written = s3Client.getCurrentBucketPolicy(bucketName);
+                if (bucketChanges.stream().allMatch(change -> change.isApplied(written.getStatements()))) {
+                    return Outcome.APPLIED;
+                }
+                policy.setStatements(written.getStatements());
+                policy.setId(written.getId());
+            }
+            return Outcome.CONFLICT;
+        } catch (AmazonServiceException e) {
+            return Outcome.failed(e.getErrorCode() + " " + e.getErrorMessage());
+        } catch (SdkClientException e) {
+            return Outcome.failed(e.getMessage());
+        }
+    }
+
+    /**
+     * Either adds the statement created by the factory when no statement has the id, or removes the statement
+     * with the id, or removes every statement with the principal
+     */
+    private static class Change {
+        private final String statementId;
+        private final String principalId;
+        private final Supplier<Statement> factory;
+
+        Change(String statementId, String principalId, Supplier<Statement> factory) {
+            this.statementId = statementId;
+            this.principalId = principalId;
+            this.factory = factory;
+        }
+
+        boolean isApplied(Collection<Statement> statements) {
+            boolean matches = statements.stream().anyMatch(this::matches);
+            return factory != null ? matches : !matches;
+        }
+
+        void apply(Collection<Statement> statements) {
+            if (factory == null) {
+                statements.removeIf(this::matches);
+            } else if (!isApplied(statements)) {
+                statements.add(factory.get());
+            }
+        }
+
+        private boolean matches(Statement statement) {
+            if (statementId != null) {
+                return statementId.equals(statement.getId());
+            }
+            return statement.getPrincipals().stream().map(Principal::getId).anyMatch(principalId::equals);
+        }
+    }
+
+    public static class Outcome {
+        public static final Outcome APPLIED = new Outcome("APPLIED", null);
+        public static final Outcome UNCHANGED = new Outcome("UNCHANGED", null);
+        public static final Outcome CONFLICT = new Outcome("CONFLICT",
+            "Changes were overwritten by concurrent edits " + MAX_ATTEMPTS + " times");
+
+        private final String status;
+        private final String message;
+
+        private Outcome(String status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        static Outcome failed(String message) {
+            return new Outcome("FAILED", message);
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isSuccess() {
+            return this == APPLIED || this == UNCHANGED;
+        }
+
+        @Override
+        public String toString() {
+            return message == null ? status : status + ": " + message;
+        }
+    }
+
+    public static class Report {
+        private final Map<String, Outcome> outcomes = new ConcurrentHashMap<>();
+
+        public Map<String, Outcome> getOutcomes() {
+            return outcomes;
+        }
+
+        public boolean isComplete() {
+            return outcomes.values().stream().allMatch(Outcome::isSuccess);
+        }
+
+        public void printFailures() {
+            outcomes.forEach((bucketName, outcome) -> {
+                if (!outcome.isSuccess()) {
+                    System.err.println("\t" + bucketName + ": " + outcome);
+                }
+            });
+        }
+
+        @Override
+        public String toString() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            outcomes.values().forEach(outcome -> counts.merge(outcome.getStatus(), 1L, Long::sum));
+            return outcomes.size() + " buckets " + counts;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.policy.Action;
+import com.amazonaws.auth.policy.Condition;
+import com.amazonaws.auth.policy.Policy;
+import com.amazonaws.auth.policy.Principal;
+import com.amazonaws.auth.policy.Resource;
+import com.amazonaws.auth.policy.Statement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers "may this user perform this action on this bucket from this address" from bucket policies compiled in
+ * memory, without calling the gateway. Every bucket policy is compiled into per principal lists of deny and
+ * allow statements, with the action names in hash sets and the aws:SourceIp blocks of IpAddress and
+ * NotIpAddress conditions in a {@link CidrTrie}.
+ *
+ * <p>Evaluation follows the policy rules: an explicit deny wins, otherwise an allow is required. Only the policy
+ * is considered, not ACLs or bucket ownership. Conditions other than aws:SourceIp cannot be evaluated locally, so
+ * an allow statement carrying one never matches and a deny statement carrying one always does, which keeps
+ * audits on the safe side.
+ */
+public class PolicyEvaluator {
+    private static final String ANY_PRINCIPAL = "*";
+    private static final String SOURCE_IP_KEY = "aws:sourceip";
+    private static final String IP_ADDRESS = "IpAddress";
+    private static final String NOT_IP_ADDRESS = "NotIpAddress";
+
+    private final S3Client s3Client;
+    private final Map<String, CompiledPolicy> policies = new ConcurrentHashMap<>();
+    private final Map<String, String> loadFailures = new ConcurrentHashMap<>();
+
+    public PolicyEvaluator(S3Client s3Client) {
+        this.s3Client = s3Client;
+    }
+
+    public enum Decision {
+        ALLOW, EXPLICIT_DENY, IMPLICIT_DENY
+    }
+
+    /**
+     * Fetches and compiles the policies of the given buckets, buckets that cannot be read are listed in
+     * {@link #getLoadFailures()}
+     *
+     * @param bucketNames buckets to load
+     * @param parallelism number of policies fetched at once
+     */
+    public PolicyEvaluator load(Collection<String> bucketNames, int parallelism) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            bucketNames.forEach(bucketName -> executor.execute(() -> {
+                try {
+                    addPolicy(bucketName, s3Client.getBucketPolicy(bucketName));
+                } catch (AmazonServiceException e) {
+                    loadFailures.put(bucketName, e.getErrorCode() + " " + e.getErrorMessage());
+                } catch (RuntimeException e) {
+                    loadFailures.put(bucketName, String.valueOf(e.getMessage()));
+                }
+            }));
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Policy loading was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        return this;
+    }
+
+    public void addPolicy(String bucketName, Policy policy) {
+        policies.put(bucketName, new CompiledPolicy(policy.getStatements()));
+        loadFailures.remove(bucketName);
+    }
+
+    public void removePolicy(String bucketName) {
+        policies.remove(bucketName);
+    }
+
+    public Set<String> getBucketNames() {
+        return Collections.unmodifiableSet(policies.keySet());
+    }
+
+    public Map<String, String> getLoadFailures() {
+        return Collections.unmodifiableMap(loadFailures);
+    }
+
+    /**
+     * @param bucketName bucket the request is made to
+     * @param userId     user making the request
+     * @param actionName action such as "s3:GetObject"
+     * @param objectKey  key of the object, null for bucket level actions
+     * @param sourceIp   address the request comes from
+     * @return the policy decision, IMPLICIT_DENY for buckets without a loaded policy
+     */
+    public Decision evaluate(String bucketName, String userId, String actionName, String objectKey,
+        String sourceIp) {
+        return evaluate(bucketName, s3Client.generatePrincipalId(userId), actionName.toLowerCase(Locale.ROOT),
+            getResource(bucketName, objectKey), CidrTrie.parseAddress(sourceIp));
+    }
+
+    public boolean isAllowed(String bucketName, String userId, String actionName, String objectKey,
+        String sourceIp) {
+        return evaluate(bucketName, userId, actionName, objectKey, sourceIp) == Decision.ALLOW;
+    }
+
+    /**
+     * Evaluates the same request against every loaded bucket
+     *
+     * @return decision per bucket in bucket name order, the object key is applied to every bucket
+     */
+    public Map<String, Decision> evaluateAll(String userId, String actionName, String objectKey, String sourceIp) {
+        String principalId = s3Client.generatePrincipalId(userId);
+        String action = actionName.toLowerCase(Locale.ROOT);
+        byte[] address = CidrTrie.parseAddress(sourceIp);
+        Map<String, Decision> decisions = new TreeMap<>();
+        policies.keySet().forEach(bucketName -> decisions.put(bucketName,
+            evaluate(bucketName, principalId, action, getResource(bucketName, objectKey), address)));
+        return decisions;
+    }
+
+    private Decision evaluate(String bucketName, String principalId, String action, String resource,
+        byte[] address) {
+        CompiledPolicy policy = policies.get(bucketName);
+        if (policy == null) {
+            return Decision.IMPLICIT_DENY;
+        }
+        return policy.evaluate(principalId, action, resource, address);
+    }
+
+    private String getResource(String bucketName, String objectKey) {
+        String bucketResource = s3Client.getPolicyBucketId(bucketName);
+        return objectKey == null ? bucketResource : bucketResource + "/" + objectKey;
+    }
+
+    private static class CompiledPolicy {
+        private final Map<String, List<CompiledStatement>> denies = new HashMap<>();
+        private final Map<String, List<CompiledStatement>> allows = new HashMap<>();
+
+        CompiledPolicy(Collection<Statement> statements) {
+            for (Statement statement : statements) {
+                CompiledStatement compiled = new CompiledStatement(statement);
+                Map<String, List<CompiledStatement>> byPrincipal =
+                    statement.getEffect() == Statement.Effect.Deny ? denies : allows;
+                for (Principal principal : statement.getPrincipals()) {
+                    byPrincipal.computeIfAbsent(principal.getId(), id -> new ArrayList<>()).add(compiled);
+                }
+            }
+        }
+
+        Decision evaluate(String principalId, String action, String resource, byte[] address) {
+            if (matches(denies, principalId, action, resource, address)) {
+                return Decision.EXPLICIT_DENY;
+            }
+            if (matches(allows, principalId, action, resource, address)) {
+                return Decision.ALLOW;
+            }
+            return Decision.IMPLICIT_DENY;
+        }
+
+        private static boolean matches(Map<String, List<CompiledStatement>> byPrincipal, String principalId,
+            String action, String resource, byte[] address) {
+            return matches(byPrincipal.get(principalId), action, resource, address)
+                || matches(byPrincipal.get(ANY_PRINCIPAL), action, resource, address);
+        }
+
+        private static boolean matches(List<CompiledStatement> statements, String action, String resource,
+            byte[] address) {
+            if (statements != null) {
+                for (CompiledStatement statement : statements) {
+                    if (statement.matches(action, resource, address)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class CompiledStatement {
+        private final boolean deny;
+        private final Set<String> actions = new HashSet<>();
+        private final List<String> actionPrefixes = new ArrayList<>();
+        private final List<String[]> resources = new ArrayList<>();
+        private final List<CidrTrie> allowedIps = new ArrayList<>();
+        private final List<CidrTrie> deniedIps = new ArrayList<>();
+        private boolean unsupportedCondition;
+
+        CompiledStatement(Statement statement) {
+            deny = statement.getEffect() == Statement.Effect.Deny;
+            for (Action action : statement.getActions()) {
+                String name = action.getActionName().toLowerCase(Locale.ROOT);
+                if (name.endsWith("*")) {
+                    actionPrefixes.add(name.substring(0, name.length() - 1));
+                } else {
+                    actions.add(name);
+                }
+            }
+            for (Resource resource : statement.getResources()) {
+                resources.add(resource.getId().split("\\*", -1));
+            }
+            for (Condition condition : statement.getConditions()) {
+                boolean sourceIp = SOURCE_IP_KEY.equalsIgnoreCase(condition.getConditionKey());
+                if (sourceIp && (IP_ADDRESS.equals(condition.getType())
+                    || NOT_IP_ADDRESS.equals(condition.getType()))) {
+                    CidrTrie trie = new CidrTrie();
+                    condition.getValues().forEach(value -> trie.add(value.trim()));
+                    (IP_ADDRESS.equals(condition.getType()) ? allowedIps : deniedIps).add(trie);
+                } else {
+                    unsupportedCondition = true;
+                }
+            }
+        }
+
+        boolean matches(String action, String resource, byte[] address) {
+            if (!matchesAction(action) || !matchesResource(resource)) {
+                return false;
+            }
+            if (unsupportedCondition) {
+                return deny;
+            }
+            for (CidrTrie trie : allowedIps) {
+                if (!trie.contains(address)) {
+                    return false;
+                }
+            }
+            for (CidrTrie trie : deniedIps) {
+                if (trie.contains(address)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesAction(String action) {
+            if (actions.contains(action)) {
+                return true;
+            }
+            for (String prefix : actionPrefixes) {
+                if (action.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesResource(String resource) {
+            for (String[] parts : resources) {
+                if (matchesPattern(parts, resource)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param parts pattern split on its '*' wildcards
+         */
+        private static boolean matchesPattern(String[] parts, String value) {
+            if (parts.length == 1) {
+                return parts[0].equals(value);
+            }
+            if (!value.startsWith(parts[0])) {
+                return false;
+            }
+            int position = parts[0].length();
+            for (int i = 1; i < parts.length - 1; i++) {
+                int found = value.indexOf(parts[i], position);
+                if (found < 0) {
+                    return false;
+                }
+                position = found + parts[i].length();
+            }
+            String last = parts[parts.length - 1];
+            return value.length() - last.length() >= position && value.endsWith(last);
+        }
+    }
+}
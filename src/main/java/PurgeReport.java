@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of a bulk delete: how many keys were removed and, for every key that was not, why.
+ */
+public class PurgeReport {
+    private final String bucketName;
+    private final AtomicLong deleted = new AtomicLong();
+    private final ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+    public PurgeReport(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    void addDeleted(long count) {
+        deleted.addAndGet(count);
+    }
+
+    void addFailure(String key, String versionId, String code, String message) {
+        failures.add(new Failure(key, versionId, code, message));
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    public List<Failure> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public void printFailures() {
+        failures.forEach(failure -> System.err.println("\t" + failure));
+    }
+
+    @Override
+    public String toString() {
+        return "Bucket \"" + bucketName + "\": " + deleted.get() + " deleted, " + failures.size() + " failed";
+    }
+
+    public static class Failure {
+        private final String key;
+        private final String versionId;
+        private final String code;
+        private final String message;
+
+        Failure(String key, String versionId, String code, String message) {
+            this.key = key;
+            this.versionId = versionId;
+            this.code = code;
+            this.message = message;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getVersionId() {
+            return versionId;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return key + (versionId == null ? "" : " (" + versionId + ")") + ": " + code + " " + message;
+        }
+    }
+}
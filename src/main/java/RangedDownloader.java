@@ -0,0 +1,192 @@
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+/**
+ * Downloads an object into a local file over several concurrent ranged GETs. The file is preallocated to the
+ * object's length and every range is written at its own position, so ranges can complete in any order.
+ */
+public class RangedDownloader {
+    public static final long DEFAULT_THRESHOLD = 64L * 1024 * 1024;
+    public static final long DEFAULT_RANGE_SIZE = 16L * 1024 * 1024;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AmazonS3 client;
+    private final long threshold;
+    private final long rangeSize;
+    private final int concurrency;
+
+    public RangedDownloader(AmazonS3 client) {
+        this(client, DEFAULT_THRESHOLD, DEFAULT_RANGE_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    public RangedDownloader(AmazonS3 client, long threshold, long rangeSize, int concurrency) {
+        if (rangeSize < 1) {
+            throw new IllegalArgumentException("Range size must be positive");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.client = client;
+        this.threshold = threshold;
+        this.rangeSize = rangeSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Saves the object to the destination file, using ranged GETs when the object is above the threshold.
+     * Every range is requested with the ETag returned by the HEAD request, so an object that is overwritten
+     * mid-download fails instead of producing a mixed file. Objects carrying a {@link Crc32c#METADATA_KEY}
+     * checksum are verified from the bytes as they are written, a mismatch deletes the file. Objects tagged with an
+     * {@link ObjectCodec} are decompressed into the file over a single GET, since compressed streams can only be
+     * decoded in order.
+     *
+     * @param bucketName  bucket that holds the object
+     * @param objectKey   key of the object to download
+     * @param destination local file, created or truncated
+     * @return metadata returned by the HEAD request
+     */
+    public ObjectMetadata download(String bucketName, String objectKey, File destination) throws IOException {
+        ObjectMetadata metadata = client.getObjectMetadata(bucketName, objectKey);
+        long length = metadata.getContentLength();
+        String eTag = metadata.getETag();
+        String expectedChecksum = metadata.getUserMetaDataOf(Crc32c.METADATA_KEY);
+        ObjectCodec codec = ObjectCodec.forFormat(metadata.getUserMetaDataOf(ObjectCodec.METADATA_KEY));
+
+        if (codec != null) {
+            downloadDecompressed(bucketName, objectKey, eTag, codec, destination);
+            return metadata;
+        }
+
+        if (length < threshold && expectedChecksum == null) {
+            if (client.getObject(new GetObjectRequest(bucketName, objectKey).withMatchingETagConstraint(eTag),
+                destination) == null) {
+                throw new IOException("Object \"" + objectKey + "\" changed during download");
+            }
+            verifyLength(objectKey, destination, length);
+            return metadata;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try (RandomAccessFile file = new RandomAccessFile(destination, "rw")) {
+            file.setLength(length);
+            FileChannel channel = file.getChannel();
+            List<Future<Long>> ranges = new ArrayList<>();
+            long[] rangeChecksums = new long[(int) ((length + rangeSize - 1) / rangeSize)];
+            for (long start = 0; start < length; start += rangeSize) {
+                long rangeStart = start;
+                long rangeEnd = Math.min(start + rangeSize, length) - 1;
+                int index = (int) (start / rangeSize);
+                ranges.add(executor.submit(() -> downloadRange(bucketName, objectKey, eTag, rangeStart, rangeEnd,
+                    channel, rangeChecksums, index)));
+            }
+
+            long written = 0;
+            Crc32c checksum = new Crc32c();
+            for (int i = 0; i < ranges.size(); i++) {
+                long rangeLength = ranges.get(i).get();
+                checksum.update(rangeChecksums[i], rangeLength);
+                written += rangeLength;
+            }
+            if (written != length) {
+                throw new IOException("Object \"" + objectKey + "\" downloaded " + written + " of " + length
+                    + " bytes");
+            }
+            if (expectedChecksum != null && !expectedChecksum.equals(checksum.toMetadataValue())) {
+                throw new IOException("Object \"" + objectKey + "\" failed verification, CRC32C is "
+                    + checksum.toMetadataValue() + " instead of " + expectedChecksum);
+            }
+            channel.force(false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            destination.delete();
+            throw new InterruptedIOException("Download of \"" + objectKey + "\" was interrupted");
+        } catch (ExecutionException e) {
+            destination.delete();
+            if (e.getCause() instanceof SdkClientException) {
+                throw (SdkClientException) e.getCause();
+            }
+            throw new IOException("Download of \"" + objectKey + "\" failed", e.getCause());
+        } catch (IOException | RuntimeException e) {
+            destination.delete();
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+        verifyLength(objectKey, destination, length);
+        return metadata;
+    }
+
+    private void downloadDecompressed(String bucketName, String objectKey, String eTag, ObjectCodec codec,
+        File destination) throws IOException {
+        S3Object object = client.getObject(new GetObjectRequest(bucketName, objectKey)
+            .withMatchingETagConstraint(eTag));
+        if (object == null) {
+            throw new IOException("Object \"" + objectKey + "\" changed during download");
+        }
+        try (InputStream input = codec.decompress(object.getObjectContent())) {
+            Files.copy(input, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            destination.delete();
+            throw e;
+        }
+    }
+
+    private long downloadRange(String bucketName, String objectKey, String eTag, long start, long end,
+        FileChannel channel, long[] rangeChecksums, int index) throws IOException {
+        S3Object object = client.getObject(new GetObjectRequest(bucketName, objectKey)
+            .withRange(start, end)
+            .withMatchingETagConstraint(eTag));
+        if (object == null) {
+            throw new IOException("Object \"" + objectKey + "\" changed during download");
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = start;
+        CRC32C crc = new CRC32C();
+        try (S3ObjectInputStream input = object.getObjectContent()) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+                while (source.hasRemaining()) {
+                    position += channel.write(source, position);
+                }
+            }
+        }
+        if (position != end + 1) {
+            throw new IOException("Range " + start + "-" + end + " of \"" + objectKey + "\" was truncated");
+        }
+        rangeChecksums[index] = crc.getValue();
+        return position - start;
+    }
+
+    private void verifyLength(String objectKey, File destination, long length) throws IOException {
+        if (destination.length() != length) {
+            destination.delete();
+            throw new IOException("Object \"" + objectKey + "\" saved " + destination.length() + " of " + length
+                + " bytes");
+        }
+    }
+}
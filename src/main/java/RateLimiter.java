@@ -0,0 +1,33 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out permits evenly so that no more than {@code permitsPerSecond} are handed out per second, shared by
+ * any number of threads.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private long nextPermit = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond maximum rate, zero or less for no limit
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long permit = Math.max(now, nextPermit);
+            nextPermit = permit + intervalNanos;
+            wait = permit - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
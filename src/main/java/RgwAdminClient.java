@@ -1,3 +1,8 @@
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import org.twonote.rgwadmin4j.RgwAdmin;
 import org.twonote.rgwadmin4j.RgwAdminBuilder;
 import org.twonote.rgwadmin4j.impl.RgwAdminException;
@@ -6,6 +11,9 @@ import org.twonote.rgwadmin4j.model.Quota;
 import org.twonote.rgwadmin4j.model.S3Credential;
 import org.twonote.rgwadmin4j.model.User;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -14,24 +22,90 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
 
 public class RgwAdminClient {
+    private static final int USER_CACHE_SIZE = 4096;
+    private static final long USER_CACHE_TTL_SECONDS = 60;
     private final RgwAdmin rgwAdmin;
+    private final String adminAccessKey;
+    private final ExpiringCache<String, User> userCache =
+        new ExpiringCache<>(USER_CACHE_SIZE, USER_CACHE_TTL_SECONDS, TimeUnit.SECONDS);
+    private final ExpiringCache<String, Quota> userQuotaCache =
+        new ExpiringCache<>(USER_CACHE_SIZE, USER_CACHE_TTL_SECONDS, TimeUnit.SECONDS);
 
     public RgwAdminClient(String endpoint, String accessKey, String secretKey) {
-        this.rgwAdmin = new RgwAdminBuilder()
+        this(new RgwAdminBuilder()
             .accessKey(accessKey)
             .secretKey(secretKey)
             .endpoint(endpoint)
-            .build();
+            .build(), accessKey);
+    }
+
+    RgwAdminClient(RgwAdmin rgwAdmin) {
+        this(rgwAdmin, null);
+    }
+
+    /**
+     * @param adminAccessKey access key signing the admin requests, its owner's keys are never rotated by this
+     *                       client, null if unknown
+     */
+    RgwAdminClient(RgwAdmin rgwAdmin, String adminAccessKey) {
+        this.rgwAdmin = AdaptiveLimiter.limit(RgwAdmin.class, "rgw",
+            ClientMetrics.instrument(RgwAdmin.class, "rgw", rgwAdmin));
+        this.adminAccessKey = adminAccessKey;
     }
 
     public void removeUser(String userId) {
-        rgwAdmin.removeUser(userId);
+        try {
+            rgwAdmin.removeUser(userId);
+        } finally {
+            invalidateUser(userId);
+        }
+    }
+
+    /**
+     * Looks the user up through the cache, concurrent lookups of the same user share one admin request. Missing
+     * users are not cached, so a user created elsewhere is found on the next lookup.
+     *
+     * @param userId user to look up
+     * @return user info, shared with the cache and not to be modified, empty if the user does not exist
+     */
+    private Optional<User> lookupUser(String userId) {
+        try {
+            return Optional.of(userCache.get(userId, id -> rgwAdmin.getUserInfo(id).orElseThrow()));
+        } catch (NoSuchElementException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Quota> lookupUserQuota(String userId) {
+        try {
+            return Optional.of(userQuotaCache.get(userId, id -> rgwAdmin.getUserQuota(id).orElseThrow()));
+        } catch (NoSuchElementException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Drops the cached info and quota of the user, for changes made outside this client
+     *
+     * @param userId user whose info will be fetched again on next use
+     */
+    public void invalidateUser(String userId) {
+        userCache.invalidate(userId);
+        userQuotaCache.invalidate(userId);
+    }
+
+    public void printUserCacheStats() {
+        System.out.println("User info cache: " + userCache);
+        System.out.println("User quota cache: " + userQuotaCache);
     }
 
     public void printUserInfo(String userName) {
-        User user = rgwAdmin.getUserInfo(userName).orElseThrow();
+        User user = lookupUser(userName).orElseThrow();
         System.out.println("User \"" + userName + "\" info:");
         System.out.println("\tId: " + user.getUserId());
         if (!user.getDisplayName().isEmpty()) {
@@ -43,7 +117,7 @@ public class RgwAdminClient {
         System.out.println("\tAccess key: " + user.getS3Credentials().get(0).getAccessKey());
         System.out.println("\tSecret key: " + user.getS3Credentials().get(0).getSecretKey());
         System.out.println("\tMax-buckets: " + user.getMaxBuckets());
-        System.out.println("\tQuota max size: " + rgwAdmin.getUserQuota(userName).get().getMaxSizeKb());
+        System.out.println("\tQuota max size: " + lookupUserQuota(userName).get().getMaxSizeKb());
         if (!user.getCaps().isEmpty()) {
             System.out.println("\tCapabilities: " + user.getCaps());
         } else {
@@ -51,8 +125,15 @@ public class RgwAdminClient {
         }
     }
 
+    /**
+     * @return cached user info, shared with other callers of this client and not to be modified
+     */
     public User getUserInfo(String userName) {
-        return rgwAdmin.getUserInfo(userName).orElseThrow();
+        return lookupUser(userName).orElseThrow();
+    }
+
+    public List<String> getUserList() {
+        return rgwAdmin.listUser();
     }
 
     public void printUserList() {
@@ -62,7 +143,7 @@ public class RgwAdminClient {
     }
 
     public void printUserCapabilities(String userName) {
-        rgwAdmin.getUserInfo(userName).orElseThrow().getCaps().forEach(cap -> System.out.println("\t" + cap));
+        lookupUser(userName).orElseThrow().getCaps().forEach(cap -> System.out.println("\t" + cap));
     }
 
     public Map<String, String> getUserParams(Scanner stdIn) {
@@ -88,7 +169,11 @@ public class RgwAdminClient {
         if (doesUserExist(userName)) {
             return modifyUser(userName, params);
         } else {
-            return rgwAdmin.createUser(userName, params);
+            try {
+                return rgwAdmin.createUser(userName, params);
+            } finally {
+                invalidateUser(userName);
+            }
         }
     }
 
@@ -101,8 +186,11 @@ public class RgwAdminClient {
         }
     }
 
+    /**
+     * @return cached user info, shared with other callers of this client and not to be modified
+     */
     public User getUser(String userId) throws RgwAdminException, NoSuchElementException {
-        return rgwAdmin.getUserInfo(userId).orElseThrow();
+        return lookupUser(userId).orElseThrow();
     }
 
     public User modifyUser(String userId, Map<String, String> userParams) {
@@ -110,41 +198,146 @@ public class RgwAdminClient {
             throw new RgwAdminException(409, "User \"" + userId + "\" does not exist");
         }
 
-        return rgwAdmin.modifyUser(userId, userParams);
+        try {
+            return rgwAdmin.modifyUser(userId, userParams);
+        } finally {
+            invalidateUser(userId);
+        }
     }
 
     public Map<String, String> rotateUserKey(String userId) {
         S3Credential currentKeys = getUserCredentialList(userId).get(0);
-        rgwAdmin.modifyUser(userId, Map.of("generate-key", "true"));
-        rgwAdmin.removeS3Credential(userId, currentKeys.getAccessKey());
+        try {
+            rgwAdmin.modifyUser(userId, Map.of("generate-key", "true"));
+            rgwAdmin.removeS3Credential(userId, currentKeys.getAccessKey());
+        } finally {
+            invalidateUser(userId);
+        }
         S3Credential generatedKeys = getUserCredentialList(userId).get(0);
         return Map.of("accessKey", generatedKeys.getAccessKey(), "secretKey", generatedKeys.getSecretKey());
     }
 
+    /**
+     * Adds a new key to the user, checks that it works and only then removes the keys the user had before.
+     * If the new key cannot be verified it is removed again and the old keys are left untouched. The keys of the
+     * user this client signs its own requests with are never rotated, since removing them would leave the client
+     * without credentials halfway through.
+     *
+     * @param userId   user whose keys will be rotated
+     * @param verifier checks the new key, e.g. by signing a request with it
+     * @return the new key
+     */
+    public S3Credential rotateUserKey(String userId, BiPredicate<String, S3Credential> verifier) {
+        invalidateUser(userId);
+        List<S3Credential> previousKeys = getUserCredentialList(userId);
+        Set<String> previousAccessKeys = previousKeys.stream()
+            .map(S3Credential::getAccessKey)
+            .collect(Collectors.toSet());
+        if (adminAccessKey != null && previousAccessKeys.contains(adminAccessKey)) {
+            throw new RgwAdminException(409, "User \"" + userId + "\" signs the requests of this admin client, "
+                + "its keys are not rotated");
+        }
+
+        List<S3Credential> currentKeys;
+        try {
+            currentKeys = rgwAdmin.createS3Credential(userId);
+        } finally {
+            invalidateUser(userId);
+        }
+        S3Credential generatedKey = currentKeys.stream()
+            .filter(credential -> !previousAccessKeys.contains(credential.getAccessKey()))
+            .findFirst()
+            .orElseThrow(() -> new RgwAdminException(500, "No new key was generated for user \"" + userId + "\""));
+
+        boolean verified;
+        try {
+            verified = getUserCredentialList(userId).stream()
+                .anyMatch(credential -> credential.getAccessKey().equals(generatedKey.getAccessKey()))
+                && verifier.test(userId, generatedKey);
+        } catch (RuntimeException e) {
+            verified = false;
+        }
+        if (!verified) {
+            removeS3Credential(userId, generatedKey.getAccessKey());
+            throw new RgwAdminException(500, "New key of user \"" + userId + "\" could not be verified, old keys kept");
+        }
+
+        try {
+            previousKeys.forEach(credential -> rgwAdmin.removeS3Credential(userId, credential.getAccessKey()));
+        } finally {
+            invalidateUser(userId);
+        }
+        return generatedKey;
+    }
+
+    public void removeS3Credential(String userId, String accessKey) {
+        try {
+            rgwAdmin.removeS3Credential(userId, accessKey);
+        } finally {
+            invalidateUser(userId);
+        }
+    }
+
+    /**
+     * Rotates the keys of every user, each new key is checked with a signed request to the S3 endpoint before
+     * the user's old keys are removed
+     *
+     * @param s3Endpoint S3 endpoint of the gateway
+     * @param region     region used to sign the check requests
+     */
+    public BulkKeyRotator.Summary rotateUserKeys(Collection<String> userIds, Path resultsFile, String s3Endpoint,
+        String region) throws IOException, InterruptedException {
+        return new BulkKeyRotator(this).rotate(userIds, resultsFile, getS3CredentialVerifier(s3Endpoint, region));
+    }
+
+    /**
+     * @return verifier that signs a request with the new key and accepts it only when the gateway authenticates
+     * it as the rotated user
+     */
+    public static BiPredicate<String, S3Credential> getS3CredentialVerifier(String s3Endpoint, String region) {
+        return (userId, credential) -> {
+            AmazonS3 client = AmazonS3ClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(
+                    new BasicAWSCredentials(credential.getAccessKey(), credential.getSecretKey())))
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(s3Endpoint, region))
+                .withClientConfiguration(S3ClientRegistry.getDefaultClientConfiguration())
+                .build();
+            try {
+                return userId.equals(client.getS3AccountOwner().getId());
+            } finally {
+                client.shutdown();
+            }
+        };
+    }
+
     public void resetUserKeys(String userId) {
         if (!doesUserExist(userId)) {
             throw new RgwAdminException(409, "User \"" + userId + "\" does not exist");
         }
-        rgwAdmin.getUserInfo(userId).orElseThrow().getS3Credentials().forEach(s3Credential -> {
-            rgwAdmin.removeS3Credential(userId, s3Credential.getAccessKey());
-        });
-        rgwAdmin.modifyUser(userId, Map.of("generate-key", "true"));
+        try {
+            lookupUser(userId).orElseThrow().getS3Credentials().forEach(s3Credential -> {
+                rgwAdmin.removeS3Credential(userId, s3Credential.getAccessKey());
+            });
+            rgwAdmin.modifyUser(userId, Map.of("generate-key", "true"));
+        } finally {
+            invalidateUser(userId);
+        }
     }
 
     public List<S3Credential> getUserCredentialList(String userId) {
-        Optional<User> userInfo = rgwAdmin.getUserInfo(userId);
+        Optional<User> userInfo = lookupUser(userId);
         if (userInfo.isEmpty()) {
             throw new RgwAdminException(409, "User \"" + userId + "\" does not exist");
         }
-        return userInfo.get().getS3Credentials();
+        return List.copyOf(userInfo.get().getS3Credentials());
     }
 
     public void rotate100(String userId) {
         Set<String> keySet = new HashSet<>();
         for (int i = 0; i < 100; i++) {
             rotateUserKey(userId);
-            String accessKey = rgwAdmin.getUserInfo(userId).orElseThrow().getS3Credentials().get(0).getAccessKey();
-            String secretKey = rgwAdmin.getUserInfo(userId).orElseThrow().getS3Credentials().get(0).getSecretKey();
+            String accessKey = lookupUser(userId).orElseThrow().getS3Credentials().get(0).getAccessKey();
+            String secretKey = lookupUser(userId).orElseThrow().getS3Credentials().get(0).getSecretKey();
             System.out.println("USER KEY - " + accessKey);
             System.out.println("USER SECRET KEY - " + secretKey);
             keySet.add(accessKey);
@@ -153,7 +346,11 @@ public class RgwAdminClient {
     }
 
     public S3Credential generateKeys(String userId) {
-        return rgwAdmin.createS3Credential(userId).get(2);
+        try {
+            return rgwAdmin.createS3Credential(userId).get(2);
+        } finally {
+            invalidateUser(userId);
+        }
     }
 
     public void linkBucket(String bucketName, String userId) {
@@ -170,11 +367,19 @@ public class RgwAdminClient {
     }
 
     public void createSubUser(String userId, String subUserId, Map<String, String> params) {
-        rgwAdmin.createSubUser(userId, subUserId, params);
+        try {
+            rgwAdmin.createSubUser(userId, subUserId, params);
+        } finally {
+            invalidateUser(userId);
+        }
     }
 
     public void removeSubUser(String userId, String subUserId) {
-        rgwAdmin.removeSubUser(userId, subUserId);
+        try {
+            rgwAdmin.removeSubUser(userId, subUserId);
+        } finally {
+            invalidateUser(userId);
+        }
     }
 
     public List<String> getSubUSers(String userId) {
@@ -194,7 +399,7 @@ public class RgwAdminClient {
     }
 
     public void printUserQuota(String userId) {
-        Quota quota = rgwAdmin.getUserQuota(userId).get();
+        Quota quota = lookupUserQuota(userId).get();
         System.out.println("User quota user " + userId + ":");
         System.out.println("\tEnabled: " + quota.getEnabled());
         System.out.println("\tMax objects: " + quota.getMaxObjects());
@@ -202,11 +407,11 @@ public class RgwAdminClient {
     }
 
     public boolean doesUserQuotaExist(String userId) {
-        return rgwAdmin.getUserQuota(userId).isPresent();
+        return lookupUserQuota(userId).isPresent();
     }
 
     public Quota getUserQuota(String userId) {
-        Optional<Quota> quotaOptional = rgwAdmin.getUserQuota(userId);
+        Optional<Quota> quotaOptional = lookupUserQuota(userId);
         if (quotaOptional.isEmpty()) {
             throw new RgwAdminException(404, "User quota is not defined");
         }
@@ -217,8 +422,22 @@ public class RgwAdminClient {
         if (!doesUserExist(userId)) {
             throw new RgwAdminException(404, "The user \" " + userId + "\" does not exist");
         }
-        rgwAdmin.setUserQuota(userId, -1, maxSize);
-        rgwAdmin.setBucketQuota(userId, -1, -1);
+        try {
+            rgwAdmin.setUserQuota(userId, -1, maxSize);
+            rgwAdmin.setBucketQuota(userId, -1, -1);
+        } finally {
+            userQuotaCache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Collects the usage of every bucket in the cluster, see {@link UsageReporter}
+     *
+     * @param parallelism maximum number of bucket info requests in flight
+     * @return usage per bucket and per owner
+     */
+    public UsageReport getUsageReport(int parallelism) {
+        return new UsageReporter(this, parallelism).collect();
     }
 
     public void calculateUsedSpace(String bucketName) {
@@ -1,9 +1,6 @@
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.ClientConfiguration;
-import com.amazonaws.Protocol;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.auth.policy.Action;
 import com.amazonaws.auth.policy.Condition;
 import com.amazonaws.auth.policy.Policy;
@@ -12,46 +9,98 @@ import com.amazonaws.auth.policy.Principal;
 import com.amazonaws.auth.policy.Resource;
 import com.amazonaws.auth.policy.Statement;
 import com.amazonaws.auth.policy.actions.S3Actions;
-import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3Client;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.internal.Mimetypes;
 import com.amazonaws.services.s3.model.*;
 import com.amazonaws.util.StringUtils;
 import com.sun.jdi.request.DuplicateRequestException;
-import org.apache.commons.io.FileUtils;
 import org.joda.time.DateTime;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class S3Client {
     private static final String PROVIDER = "AWS";
-    private static final String READ_STATEMENT = "read";
-    private static final String WRITE_STATEMENT = "write";
+    static final String READ_STATEMENT = "read";
+    static final String WRITE_STATEMENT = "write";
+    static final String ACLS_DISABLED_STATEMENT = "ACLs disabled";
+    static final List<Action> READ_ACTIONS = List.of(
+        S3Actions.ListBuckets,
+        S3Actions.ListObjects,
+        S3Actions.ListObjectVersions,
+        S3Actions.GetObject,
+        S3Actions.GetObjectVersion
+    );
+    static final List<Action> WRITE_ACTIONS = List.of(
+        S3Actions.CreateBucket,
+        S3Actions.DeleteBucket,
+        S3Actions.PutObject,
+        S3Actions.DeleteObject,
+        S3Actions.DeleteObjectVersion
+    );
     private static final String CONDITION_IP_TYPE = "IpAddress";
+    private static final int BUCKET_CACHE_SIZE = 1024;
+    private static final long BUCKET_CACHE_TTL_SECONDS = 30;
     private final AmazonS3 client;
+    private final MultipartUploader uploader;
+    private final RangedDownloader downloader;
+    private final BatchDeleter deleter;
+    private final PackReader packReader;
+    private final CompressingUploader compressingUploader;
+    private final String endpoint;
+    private final ExpiringCache<String, Boolean> bucketExistence =
+        new ExpiringCache<>(BUCKET_CACHE_SIZE, BUCKET_CACHE_TTL_SECONDS, TimeUnit.SECONDS);
+    private final ExpiringCache<String, Bucket> buckets =
+        new ExpiringCache<>(BUCKET_CACHE_SIZE, BUCKET_CACHE_TTL_SECONDS, TimeUnit.SECONDS);
+    private final ExpiringCache<String, AccessControlList> bucketAcls =
+        new ExpiringCache<>(BUCKET_CACHE_SIZE, BUCKET_CACHE_TTL_SECONDS, TimeUnit.SECONDS);
+    private final ExpiringCache<String, String> bucketPolicies =
+        new ExpiringCache<>(BUCKET_CACHE_SIZE, BUCKET_CACHE_TTL_SECONDS, TimeUnit.SECONDS);
 
     public S3Client(String endpoint, String accessKey, String secretKey) {
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        ClientConfiguration clientConfig = new ClientConfiguration();
-        clientConfig.setProtocol(Protocol.HTTP);
-        client = new AmazonS3Client(credentials, clientConfig);
-        client.setEndpoint(endpoint);
+        this(S3ClientRegistry.getClient(endpoint, accessKey, secretKey,
+            S3ClientRegistry.getDefaultClientConfiguration()), endpoint);
     }
 
     public S3Client(String endpoint, String region, String accessKey, String secretKey) {
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        AwsClientBuilder.EndpointConfiguration config = new AwsClientBuilder.EndpointConfiguration(endpoint, region);
-        client = AmazonS3ClientBuilder.standard()
-            .withCredentials(new AWSStaticCredentialsProvider(credentials))
-            .withEndpointConfiguration(config)
-            .build();
+        this(endpoint, region, accessKey, secretKey, S3ClientRegistry.getDefaultClientConfiguration());
+    }
+
+    public S3Client(String endpoint, String region, String accessKey, String secretKey,
+        ClientConfiguration clientConfig) {
+        this(S3ClientRegistry.getClient(endpoint, region, accessKey, secretKey, clientConfig), endpoint);
+    }
+
+    S3Client(AmazonS3 client) {
+        this(client, null);
+    }
+
+    /**
+     * @param endpoint endpoint the client talks to, keeps local state such as manifests apart per cluster, null if
+     *                 unknown
+     */
+    S3Client(AmazonS3 client, String endpoint) {
+        this.client = AdaptiveLimiter.limit(AmazonS3.class, "s3",
+            ClientMetrics.instrument(AmazonS3.class, "s3", client));
+        uploader = new MultipartUploader(this.client);
+        downloader = new RangedDownloader(this.client);
+        deleter = new BatchDeleter(this.client);
+        packReader = new PackReader(this.client);
+        compressingUploader = new CompressingUploader(this.client);
+        this.endpoint = endpoint;
     }
 
     /**
@@ -60,28 +109,62 @@ public class S3Client {
 
     public Bucket createBucket(String bucketName) throws DuplicateRequestException {
         Bucket bucket;
-        if (client.doesBucketExistV2(bucketName)) {
+        if (doesBucketExist(bucketName)) {
             throw new DuplicateRequestException("Bucket \"" + bucketName + "\" already exists!");
         } else {
             bucket = client.createBucket(bucketName);
+            invalidateBucketMetadata(bucketName);
+            bucketExistence.put(bucketName, true);
             return bucket;
         }
     }
 
     public boolean doesBucketExist(String bucketName) {
-        return client.doesBucketExistV2(bucketName);
+        return bucketExistence.get(bucketName, client::doesBucketExistV2);
     }
 
+    /**
+     * @throws NoSuchElementException if the bucket is not listed, misses are not cached so a bucket created by
+     *                                another client is found on the next call
+     */
     public Bucket getBucket(String bucket_name) {
-        return client.listBuckets().stream().filter(bucket -> bucket.getName().equals(bucket_name)).findAny().orElseThrow();
+        return buckets.get(bucket_name, name -> getBucketList().stream()
+            .filter(bucket -> bucket.getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new NoSuchElementException("Bucket \"" + name + "\" not found")));
+    }
+
+    public Owner getBucketOwner(String bucketName) {
+        return getBucket(bucketName).getOwner();
+    }
+
+    /**
+     * Drops everything cached about the bucket, for changes made through other clients
+     *
+     * @param bucketName bucket whose existence, owner, ACL and policy will be fetched again on next use
+     */
+    public void invalidateBucketMetadata(String bucketName) {
+        bucketExistence.invalidate(bucketName);
+        buckets.invalidate(bucketName);
+        bucketAcls.invalidate(bucketName);
+        bucketPolicies.invalidate(bucketName);
     }
 
     public void removeBucket(String bucketName) throws AmazonS3Exception {
-        client.deleteBucket(bucketName);
+        try {
+            client.deleteBucket(bucketName);
+        } finally {
+            invalidateBucketMetadata(bucketName);
+        }
     }
 
     public List<Bucket> getBucketList() {
-        return client.listBuckets();
+        List<Bucket> bucketList = client.listBuckets();
+        bucketList.forEach(bucket -> {
+            buckets.put(bucket.getName(), bucket);
+            bucketExistence.put(bucket.getName(), true);
+        });
+        return bucketList;
     }
 
     public void printBucketList() {
@@ -89,32 +172,31 @@ public class S3Client {
         buckets.forEach((b) -> System.out.println("\t" + b));
     }
 
-    private void removeAllVersionsBucket(String bucketName) {
-        VersionListing version_listing = client.listVersions(new ListVersionsRequest().withBucketName(bucketName));
-        while (true) {
-            for (S3VersionSummary vs : version_listing.getVersionSummaries()) {
-                client.deleteVersion(bucketName, vs.getKey(), vs.getVersionId());
-            }
-            if (version_listing.isTruncated()) {
-                version_listing = client.listNextBatchOfVersions(version_listing);
-            } else {
-                break;
-            }
-        }
+    public PurgeReport removeAllVersionsBucket(String bucketName) {
+        return deleter.deleteVersions(bucketName);
     }
 
-    public void removeObjectsFromBucket(String bucketName) {
-        ObjectListing object_listing = client.listObjects(bucketName);
-        while (true) {
-            for (S3ObjectSummary summary : object_listing.getObjectSummaries()) {
-                client.deleteObject(bucketName, summary.getKey());
-            }
-            if (object_listing.isTruncated()) {
-                object_listing = client.listNextBatchOfObjects(object_listing);
-            } else {
-                break;
-            }
+    public PurgeReport removeObjectsFromBucket(String bucketName) {
+        return deleter.deleteObjects(bucketName);
+    }
+
+    public PurgeReport removeObjectsFromBucket(String bucketName, Collection<String> objectKeys) {
+        return deleter.deleteKeys(bucketName, objectKeys);
+    }
+
+    /**
+     * Deletes every object version of the bucket and then the bucket itself. The bucket is kept if any key
+     * could not be deleted.
+     *
+     * @param bucketName bucket to remove
+     * @return report of the object deletion
+     */
+    public PurgeReport removeNonEmptyBucket(String bucketName) {
+        PurgeReport report = removeAllVersionsBucket(bucketName);
+        if (report.isComplete()) {
+            removeBucket(bucketName);
         }
+        return report;
     }
 
     //Bucket lifecycle configuration
@@ -158,8 +240,28 @@ public class S3Client {
         });
     }
 
-    public void removeAllBuckets() {
-        getBucketList().forEach(bucket -> removeBucket(bucket.getName()));
+    public List<PurgeReport> removeAllBuckets() {
+        return getBucketList().stream()
+            .map(bucket -> removeNonEmptyBucket(bucket.getName()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Copies a bucket or prefix into another bucket server-side, see {@link BucketCloner}. The target bucket is
+     * created if it does not exist.
+     *
+     * @param sourceBucketName bucket to copy from
+     * @param sourcePrefix     prefix to copy, empty for the whole bucket
+     * @param targetBucketName bucket to copy to
+     * @param targetPrefix     prefix the copies are stored under, empty to keep the source keys
+     * @return counts of copied objects and bytes, and the keys that failed
+     */
+    public CloneReport cloneBucket(String sourceBucketName, String sourcePrefix, String targetBucketName,
+        String targetPrefix) {
+        if (!doesBucketExist(targetBucketName)) {
+            createBucket(targetBucketName);
+        }
+        return new BucketCloner(client).clone(sourceBucketName, sourcePrefix, targetBucketName, targetPrefix);
     }
 
     /**
@@ -167,54 +269,341 @@ public class S3Client {
      */
 
     public PutObjectResult addObjectToBucket(String bucketName, File object) throws IOException {
-        ByteArrayInputStream input = new ByteArrayInputStream(FileUtils.readFileToByteArray(object));
-        return client.putObject(new PutObjectRequest(bucketName, object.getName(), input, new ObjectMetadata()));
+        return putFile(bucketName, object.getName(), object, new ObjectMetadata());
+    }
+
+    public PutObjectResult addObjectToBucket(String bucketName, String objectKey, File object) throws IOException {
+        return putFile(bucketName, objectKey, object, new ObjectMetadata());
     }
 
     public PutObjectResult addObjectToBucketMeta(String bucketName, File object) throws IOException {
-        ByteArrayInputStream input = new ByteArrayInputStream(FileUtils.readFileToByteArray(object));
         ObjectMetadata metadata = new ObjectMetadata();
         metadata.setContentLength(object.length());
-        return client.putObject(new PutObjectRequest(bucketName, object.getName(), input, metadata));
+        return putFile(bucketName, object.getName(), object, metadata);
     }
 
+    /**
+     * Streams a local file to the bucket from a memory mapping, switching to a parallel multipart upload above the
+     * uploader's threshold
+     *
+     * @param bucketName bucket that the object will be stored in
+     * @param objectKey  key the object will be stored under
+     * @param object     local file to upload
+     * @param metadata   metadata to store with the object
+     * @return result of the upload
+     */
+    private PutObjectResult putFile(String bucketName, String objectKey, File object, ObjectMetadata metadata)
+        throws IOException {
+        if (!object.isFile()) {
+            throw new FileNotFoundException("File \"" + object.getPath() + "\" does not exist");
+        }
+        if (uploader.shouldUpload(object)) {
+            CompleteMultipartUploadResult multipartResult =
+                uploader.upload(bucketName, objectKey, object, metadata);
+            PutObjectResult result = new PutObjectResult();
+            result.setETag(multipartResult.getETag());
+            result.setVersionId(multipartResult.getVersionId());
+            return result;
+        }
+        try (MappedFileInputStream input = new MappedFileInputStream(object)) {
+            metadata.setContentLength(input.getLength());
+            if (metadata.getContentType() == null) {
+                metadata.setContentType(Mimetypes.getInstance().getMimetype(object));
+            }
+            return client.putObject(new PutObjectRequest(bucketName, objectKey, input, metadata));
+        }
+    }
+
+    /**
+     * Uploads a local file with the CRC32C of its content stored under {@link Crc32c#METADATA_KEY}, for
+     * {@link #saveObjectToFile(String, String, String)} to verify. Metadata travels ahead of the body and this SDK
+     * has no trailing checksums, so the CRC32C is computed in one pass over a memory mapping of the file before
+     * the upload, which then streams the pages that pass left in the page cache. The bytes sent are not
+     * checksummed a second time, a file whose size or modification time changed by the end of the upload is
+     * treated as changed instead.
+     *
+     * @param bucketName bucket that the object will be stored in
+     * @param objectKey  key the object will be stored under
+     * @param object     local file to upload
+     * @return result of the upload
+     * @throws IOException if the file changed while it was uploaded, the uploaded object is then deleted
+     */
+    public PutObjectResult addObjectToBucketWithChecksum(String bucketName, String objectKey, File object)
+        throws IOException {
+        if (!object.isFile()) {
+            throw new FileNotFoundException("File \"" + object.getPath() + "\" does not exist");
+        }
+        long length = object.length();
+        long lastModified = object.lastModified();
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.addUserMetadata(Crc32c.METADATA_KEY, Crc32c.encode(ChecksumInputStream.checksum(object)));
+        PutObjectResult result = putFile(bucketName, objectKey, object, metadata);
+        if (object.length() != length || object.lastModified() != lastModified) {
+            client.deleteObject(bucketName, objectKey);
+            throw new IOException("File \"" + object.getPath() + "\" changed while it was uploaded");
+        }
+        return result;
+    }
+
+    /**
+     * Uploads a local file compressed with the codec, see {@link CompressingUploader}
+     *
+     * @param bucketName bucket that the object will be stored in
+     * @param objectKey  key the object will be stored under
+     * @param object     local file to upload
+     * @param codec      codec to compress with, recorded in the object's metadata
+     * @return result of the upload
+     */
+    public PutObjectResult addObjectToBucketCompressed(String bucketName, String objectKey, File object,
+        ObjectCodec codec) throws IOException {
+        if (!object.isFile()) {
+            throw new FileNotFoundException("File \"" + object.getPath() + "\" does not exist");
+        }
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(Mimetypes.getInstance().getMimetype(object));
+        try (InputStream input = new MappedFileInputStream(object)) {
+            return compressingUploader.upload(bucketName, objectKey, input, codec, metadata);
+        }
+    }
+
+    public PutObjectResult addObjectToBucketCompressed(String bucketName, String objectKey, InputStream content,
+        ObjectCodec codec, ObjectMetadata metadata) throws IOException {
+        return compressingUploader.upload(bucketName, objectKey, content, codec, metadata);
+    }
+
+    /**
+     * Content of objects uploaded with a codec is decompressed while it is read, their content length remains the
+     * stored, compressed length. Objects tagged with a format this client does not know are returned as stored.
+     */
     public S3Object getObjectFromBucket(String bucketName, String objectName) {
-        return client.getObject(bucketName, objectName);
+        S3Object object = client.getObject(bucketName, objectName);
+        ObjectCodec codec =
+            ObjectCodec.forFormat(object.getObjectMetadata().getUserMetaDataOf(ObjectCodec.METADATA_KEY));
+        if (codec != null) {
+            S3ObjectInputStream content = object.getObjectContent();
+            try {
+                object.setObjectContent(new S3ObjectInputStream(codec.decompress(content), content.getHttpRequest()));
+            } catch (IOException e) {
+                content.abort();
+                throw new SdkClientException("Unable to decompress object \"" + objectName + "\"", e);
+            } catch (RuntimeException e) {
+                content.abort();
+                throw e;
+            }
+        }
+        return object;
     }
 
     public void removeObjectFromBucket(String bucketName, String objectKey) {
         client.deleteObject(bucketName, objectKey);
     }
 
-    public void saveObjectToFile(String bucketName, String objectKey, String destinyPath) {
-        client.getObject(new GetObjectRequest(bucketName, objectKey), new File(destinyPath));
+    public void saveObjectToFile(String bucketName, String objectKey, String destinyPath) throws IOException {
+        downloader.download(bucketName, objectKey, new File(destinyPath));
     }
 
-    public ObjectListing getBucketObjectListing(String bucketName) {
-        return client.listObjects(bucketName);
+    /**
+     * @param object local file
+     * @return ETag the file gets when uploaded with {@link #addObjectToBucket(String, String, File)}
+     */
+    public String computeETag(File object) throws IOException {
+        return uploader.getETag(object);
+    }
+
+    /**
+     * Uploads the new and changed files of a local directory tree, see {@link DirectorySync}
+     *
+     * @param bucketName    target bucket
+     * @param prefix        key prefix the tree is stored under, may be empty
+     * @param directory     local directory to upload
+     * @param deleteOrphans whether keys under the prefix without a local file are deleted
+     * @return counts of uploaded, unchanged, orphaned, deleted and failed keys
+     */
+    public SyncReport syncDirectory(String bucketName, String prefix, Path directory, boolean deleteOrphans)
+        throws IOException {
+        return new DirectorySync(this).sync(bucketName, prefix, directory, deleteOrphans);
+    }
+
+    public Stream<S3ObjectSummary> getBucketObjectListing(String bucketName) {
+        return getBucketObjectListing(bucketName, null);
+    }
+
+    public Stream<S3ObjectSummary> getBucketObjectListing(String bucketName, String prefix) {
+        return ObjectListingIterator.stream(client, new ListObjectsV2Request()
+            .withBucketName(bucketName)
+            .withPrefix(prefix));
+    }
+
+    /**
+     * Fetches a single listing page with one ListObjectsV2 request, without prefetching the next page
+     *
+     * @param bucketName bucket to list
+     * @param prefix     only keys starting with this prefix are listed, null for all keys
+     * @param startAfter listing starts after this key, null to start from the beginning
+     * @param maxKeys    maximum number of keys in the page
+     * @return the listing page
+     */
+    public ListObjectsV2Result getBucketObjectPage(String bucketName, String prefix, String startAfter,
+        int maxKeys) {
+        return client.listObjectsV2(new ListObjectsV2Request()
+            .withBucketName(bucketName)
+            .withPrefix(prefix)
+            .withStartAfter(startAfter)
+            .withMaxKeys(maxKeys));
+    }
+
+    /**
+     * Lists the bucket page by page with ListObjectsV2, prefetching the next page while the current one is consumed
+     *
+     * @param bucketName bucket to list
+     * @param prefix     only keys starting with this prefix are listed, null for all keys
+     * @param delimiter  keys containing the delimiter after the prefix are rolled up into common prefixes
+     * @param startAfter listing starts after this key, null to start from the beginning
+     * @return lazy iterator over the listing pages
+     */
+    public ObjectListingIterator getBucketObjectPages(String bucketName, String prefix, String delimiter,
+        String startAfter) {
+        return ObjectListingIterator.of(client, bucketName, prefix, delimiter, startAfter);
+    }
+
+    /**
+     * Opens the local manifest of the bucket stored under {@link BucketManifest#DEFAULT_DIRECTORY}, the manifest is
+     * empty until it is first refreshed
+     */
+    public BucketManifest openBucketManifest(String bucketName) throws IOException {
+        return new BucketManifest(this, bucketName, BucketManifest.getDefaultFile(endpoint, bucketName));
+    }
+
+    /**
+     * Packs of small objects, see {@link ObjectPack}
+     */
+
+    public PackWriter newPackWriter(String bucketName, String keyPrefix) {
+        return new PackWriter(client, bucketName, keyPrefix);
+    }
+
+    /**
+     * Packs every regular file of a local directory tree, members are named by their path relative to the
+     * directory with '/' separators
+     *
+     * @return keys of the uploaded packs
+     */
+    public List<String> packDirectory(String bucketName, String keyPrefix, Path directory) throws IOException {
+        try (PackWriter writer = newPackWriter(bucketName, keyPrefix);
+             Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                writer.add(directory.relativize(file).toString().replace(File.separatorChar, '/'), file.toFile());
+            }
+            writer.flush();
+            return writer.getPackKeys();
+        }
+    }
+
+    /**
+     * Fetches one member of a pack with a single ranged GET, using the cached pack index when there is one
+     */
+    public S3Object getPackMember(String bucketName, String packKey, String memberName) {
+        return packReader.getMember(bucketName, packKey, memberName);
+    }
+
+    /**
+     * Lists the members of every pack under the prefix from the pack indexes
+     *
+     * @return pack key per member name in member name order, a name found in several packs maps to the last one
+     */
+    public Map<String, String> listPackMembers(String bucketName, String keyPrefix) {
+        Map<String, String> members = new TreeMap<>();
+        getBucketObjectListing(bucketName, keyPrefix)
+            .map(S3ObjectSummary::getKey)
+            .filter(key -> key.endsWith(PackWriter.PACK_SUFFIX))
+            .forEach(packKey -> packReader.getPack(bucketName, packKey).getEntries()
+                .forEach(entry -> members.put(entry.getName(), packKey)));
+        return members;
     }
 
     public void printBucketObjectList(String bucketName) {
-        ObjectListing objects = client.listObjects(bucketName);
         System.out.println("Bucket \"" + bucketName + "\" object list:");
-        do {
-            for (S3ObjectSummary objectSummary : objects.getObjectSummaries()) {
-                System.out.println("\t\t"
-                    + objectSummary.getKey()
-                    + " " + objectSummary.getSize()
-                    + " " + StringUtils.fromDate(objectSummary.getLastModified()));
+        getBucketObjectListing(bucketName).forEach(this::printObjectSummary);
+    }
+
+    public List<BucketFanOutLister.Result> listAllBucketObjects(int parallelism,
+        BucketFanOutLister.Listener listener) {
+        List<String> bucketNames = getBucketList().stream().map(Bucket::getName).collect(Collectors.toList());
+        return new BucketFanOutLister(client, parallelism).list(bucketNames, listener);
+    }
+
+    public void printAllBucketObjectLists() {
+        printAllBucketObjectLists(BucketFanOutLister.DEFAULT_PARALLELISM);
+    }
+
+    public void printAllBucketObjectLists(int parallelism) {
+        listAllBucketObjects(parallelism, new BucketFanOutLister.Listener() {
+            @Override
+            public void onBucket(String bucketName) {
+                System.out.println("Bucket \"" + bucketName + "\" object list:");
+            }
+
+            @Override
+            public void onObject(S3ObjectSummary summary) {
+                printObjectSummary(summary);
             }
-            objects = client.listNextBatchOfObjects(objects);
-        } while (objects.isTruncated());
+
+            @Override
+            public void onComplete(BucketFanOutLister.Result result) {
+                if (result.isSuccessful()) {
+                    System.out.println("\t" + result);
+                } else {
+                    System.err.println("\t" + result);
+                }
+            }
+        });
+    }
+
+    private void printObjectSummary(S3ObjectSummary objectSummary) {
+        System.out.println("\t\t"
+            + objectSummary.getKey()
+            + " " + objectSummary.getSize()
+            + " " + StringUtils.fromDate(objectSummary.getLastModified()));
     }
 
     /**
      * ACL Operations
      */
 
+    /**
+     * @return copy of the cached ACL, changing it does not affect the cache
+     */
+    public AccessControlList getBucketAcl(String bucketName) {
+        return copyAcl(bucketAcls.get(bucketName, client::getBucketAcl));
+    }
+
+    /**
+     * Reads the ACL straight from the gateway without caching it, for read-modify-write cycles that must not start
+     * from a cached copy or expose their changes before they are written
+     */
+    AccessControlList getCurrentBucketAcl(String bucketName) {
+        return client.getBucketAcl(bucketName);
+    }
+
+    private static AccessControlList copyAcl(AccessControlList acl) {
+        AccessControlList copy = new AccessControlList();
+        copy.setOwner(acl.getOwner());
+        copy.setRequesterCharged(acl.isRequesterCharged());
+        copy.grantAllPermissions(acl.getGrantsAsList().toArray(new Grant[0]));
+        return copy;
+    }
+
+    public AccessControlList getObjectAcl(String bucketName, String objectKey) {
+        return client.getObjectAcl(bucketName, objectKey);
+    }
+
+    public void setObjectAcl(String bucketName, String objectKey, AccessControlList acl) {
+        client.setObjectAcl(bucketName, objectKey, acl);
+    }
+
     public void printBucketACL(String bucketName) {
         try {
-            AccessControlList acl = client.getBucketAcl(bucketName);
+            AccessControlList acl = getBucketAcl(bucketName);
             System.out.println("Bucket \"" + bucketName + "\" permissions:");
             acl.getGrantsAsList().forEach(grant -> {
                 System.out.println("\t" + grant.getGrantee().getIdentifier() + ": " + grant.getPermission());
@@ -242,7 +631,7 @@ public class S3Client {
             CanonicalGrantee grantee = new CanonicalGrantee(userId);
             Permission permission = Permission.valueOf(permissionName);
             acl.grantPermission(grantee, permission);
-            client.setBucketAcl(bucketName, acl);
+            setBucketAcl(bucketName, acl);
         } catch (AmazonServiceException e) {
             System.err.println(e.getErrorMessage());
         }
@@ -253,12 +642,59 @@ public class S3Client {
             AccessControlList acl = client.getBucketAcl(bucketName);
             CanonicalGrantee grantee = new CanonicalGrantee(userId);
             acl.revokeAllPermissions(grantee);
-            client.setBucketAcl(bucketName, acl);
+            setBucketAcl(bucketName, acl);
         } catch (AmazonServiceException e) {
             System.err.println(e.getErrorMessage());
         }
     }
 
+    /**
+     * Applies the change to the current ACL of the bucket, failures are thrown rather than printed
+     *
+     * @return whether the ACL had to be written, false if the change was already applied
+     */
+    boolean updateBucketAcl(String bucketName, BulkAclUpdater.Change change) {
+        AccessControlList acl = getCurrentBucketAcl(bucketName);
+        if (change.isApplied(acl)) {
+            return false;
+        }
+        change.apply(acl);
+        setBucketAcl(bucketName, acl);
+        return true;
+    }
+
+    public void setBucketAcl(String bucketName, AccessControlList acl) {
+        try {
+            client.setBucketAcl(bucketName, acl);
+        } finally {
+            bucketAcls.invalidate(bucketName);
+        }
+    }
+
+    /**
+     * Grants the permission to the user on every bucket, see {@link BulkAclUpdater}
+     */
+    public AclReport grantPermission(Collection<String> bucketNames, String userId, String permissionName) {
+        return new BulkAclUpdater(this).updateBuckets(bucketNames,
+            BulkAclUpdater.grant(userId, Permission.valueOf(permissionName)));
+    }
+
+    /**
+     * Grants the permission to the user on every object under the prefix, see {@link BulkAclUpdater}
+     */
+    public AclReport grantObjectPermission(String bucketName, String prefix, String userId, String permissionName) {
+        return new BulkAclUpdater(this).updateObjects(bucketName, prefix,
+            BulkAclUpdater.grant(userId, Permission.valueOf(permissionName)));
+    }
+
+    public AclReport revokeAllPermissions(Collection<String> bucketNames, String userId) {
+        return new BulkAclUpdater(this).updateBuckets(bucketNames, BulkAclUpdater.revokeAll(userId));
+    }
+
+    public AclReport revokeAllObjectPermissions(String bucketName, String prefix, String userId) {
+        return new BulkAclUpdater(this).updateObjects(bucketName, prefix, BulkAclUpdater.revokeAll(userId));
+    }
+
     public String getUsername() {
         try {
             return client.getS3AccountOwner().getDisplayName();
@@ -288,16 +724,21 @@ public class S3Client {
     }
 
     public void deleteBucketPolicy(String bucketName) {
-        client.deleteBucketPolicy(bucketName);
+        try {
+            client.deleteBucketPolicy(bucketName);
+            bucketPolicies.put(bucketName, null);
+        } catch (RuntimeException e) {
+            bucketPolicies.invalidate(bucketName);
+            throw e;
+        }
     }
 
     public void printBucketPolicy(String bucketName) {
-        BucketPolicy policy = client.getBucketPolicy(bucketName);
-        System.out.println(policy.getPolicyText());
+        System.out.println(getBucketPolicyText(bucketName));
     }
 
     public void printPolicyStatements(String bucketName) {
-        Policy bucketPolicy = Policy.fromJson(client.getBucketPolicy(bucketName).getPolicyText(),
+        Policy bucketPolicy = Policy.fromJson(getBucketPolicyText(bucketName),
             new PolicyReaderOptions().withStripAwsPrincipalIdHyphensEnabled(false));
 
         System.out.println("Policy: " + bucketPolicy.getId());
@@ -335,24 +776,57 @@ public class S3Client {
      */
 
     public void setBucketPolicy(String bucketName, String bucketPolicy) {
-        client.setBucketPolicy(bucketName, bucketPolicy);
+        try {
+            client.setBucketPolicy(bucketName, bucketPolicy);
+            bucketPolicies.put(bucketName, bucketPolicy);
+        } catch (RuntimeException e) {
+            bucketPolicies.invalidate(bucketName);
+            throw e;
+        }
+    }
+
+    public String getBucketPolicyText(String bucketName) {
+        return bucketPolicies.get(bucketName, name -> client.getBucketPolicy(name).getPolicyText());
     }
 
     public Policy getBucketPolicy(String bucketName) {
         if (!doesBucketExist(bucketName)) {
             throw new AmazonS3Exception("Unable to retrieve policy, bucket \"" + bucketName + "\" doesn't exist");
         }
-        BucketPolicy bucketPolicy = client.getBucketPolicy(bucketName);
-        if (bucketPolicy.getPolicyText() == null) {
+        String policyText = getBucketPolicyText(bucketName);
+        if (policyText == null) {
             return new Policy(getPolicyId(bucketName));
         }
-        return Policy.fromJson(bucketPolicy.getPolicyText(),
-            new PolicyReaderOptions().withStripAwsPrincipalIdHyphensEnabled(false));
+        return Policy.fromJson(policyText, new PolicyReaderOptions().withStripAwsPrincipalIdHyphensEnabled(false));
+    }
+
+    /**
+     * Reads the policy straight from the gateway, for read-modify-write cycles that must not start from a
+     * cached copy
+     */
+    Policy getCurrentBucketPolicy(String bucketName) {
+        bucketPolicies.invalidate(bucketName);
+        return getBucketPolicy(bucketName);
+    }
+
+    /**
+     * @return an empty batch of policy changes applied with one read-modify-write per bucket
+     */
+    public PolicyBatch newPolicyBatch() {
+        return new PolicyBatch(this);
+    }
+
+    /**
+     * Fetches and compiles the policies of the given buckets for local access checks, see
+     * {@link PolicyEvaluator}
+     */
+    public PolicyEvaluator newPolicyEvaluator(Collection<String> bucketNames, int parallelism) {
+        return new PolicyEvaluator(this).load(bucketNames, parallelism);
     }
 
     public boolean updateBucketPolicy(String bucketName, String userId, String allowedIps,
         List<Action> actions, String statementType) {
-        Policy bucketPolicy = getBucketPolicy(bucketName);
+        Policy bucketPolicy = getCurrentBucketPolicy(bucketName);
         Collection<Statement> policyStatements = bucketPolicy.getStatements();
         String newStatementId = getStatementId(userId, statementType);
         boolean duplicate = policyStatements.stream().anyMatch(statement -> statement.getId().equals(newStatementId));
@@ -360,25 +834,26 @@ public class S3Client {
             Statement newStatement = generateStatement(bucketName, userId, allowedIps, actions, statementType);
             policyStatements.add(newStatement);
             bucketPolicy.setStatements(policyStatements);
-            client.setBucketPolicy(bucketName, bucketPolicy.toJson());
+            setBucketPolicy(bucketName, bucketPolicy.toJson());
         }
         return !duplicate;
     }
 
     public boolean disableUserPolicyControl(String bucketName, String userId) {
-        Policy bucketPolicy = getBucketPolicy(bucketName);
+        Policy bucketPolicy = getCurrentBucketPolicy(bucketName);
         Collection<Statement> policyStatements = bucketPolicy.getStatements();
-        boolean duplicate = policyStatements.stream().anyMatch(statement -> statement.getId().equals("ACLs disabled"));
+        boolean duplicate = policyStatements.stream()
+            .anyMatch(statement -> statement.getId().equals(ACLS_DISABLED_STATEMENT));
         if (!duplicate) {
             Statement newStatement = getDenyPolicyControlStatement(bucketName, userId);
             policyStatements.add(newStatement);
             bucketPolicy.setStatements(policyStatements);
-            client.setBucketPolicy(bucketName, bucketPolicy.toJson());
+            setBucketPolicy(bucketName, bucketPolicy.toJson());
         }
         return !duplicate;
     }
 
-    private Statement getDenyPolicyControlStatement(String bucketName, String userId) {
+    Statement getDenyPolicyControlStatement(String bucketName, String userId) {
         Statement newStatement = new Statement(Statement.Effect.Deny)
             .withPrincipals(new Principal(PROVIDER, generatePrincipalId(userId), false))
             .withActions(
@@ -393,7 +868,7 @@ public class S3Client {
                 new Resource(getPolicyBucketId(bucketName)),
                 new Resource(getPolicyBucketId(bucketName) + "/*")
             );
-        newStatement.setId("ACLs disabled");
+        newStatement.setId(ACLS_DISABLED_STATEMENT);
         return newStatement;
     }
 
@@ -414,7 +889,7 @@ public class S3Client {
      * @param statementType type of the statement ('read'/'write')
      * @return generated policy statement
      */
-    private Statement generateStatement(String bucketName, String userId, String allowedIps,
+    Statement generateStatement(String bucketName, String userId, String allowedIps,
         List<Action> actions, String statementType) {
         Statement newStatement = new Statement(Statement.Effect.Allow)
             .withPrincipals(new Principal(PROVIDER, generatePrincipalId(userId), false))
@@ -442,15 +917,8 @@ public class S3Client {
     }
 
     public void applyReadPolicies(String bucketName, String clientId, String allowedIps, S3Client s3Client) {
-        List<Action> actions = List.of(
-            S3Actions.ListBuckets,
-            S3Actions.ListObjects,
-            S3Actions.ListObjectVersions,
-            S3Actions.GetObject,
-            S3Actions.GetObjectVersion
-        );
         try {
-            if (s3Client.updateBucketPolicy(bucketName, clientId, allowedIps, actions, READ_STATEMENT)) {
+            if (s3Client.updateBucketPolicy(bucketName, clientId, allowedIps, READ_ACTIONS, READ_STATEMENT)) {
                 System.out.println("Error applying policy bucket: " + bucketName + ", client: " + clientId);
             }
         } catch (AmazonS3Exception e) {
@@ -459,15 +927,8 @@ public class S3Client {
     }
 
     private void applyWritePolicies(String bucketName, String clientId, String allowedIps, S3Client s3Client) {
-        List<Action> actions = List.of(
-            S3Actions.CreateBucket,
-            S3Actions.DeleteBucket,
-            S3Actions.PutObject,
-            S3Actions.DeleteObject,
-            S3Actions.DeleteObjectVersion
-        );
         try {
-            if (s3Client.updateBucketPolicy(bucketName, clientId, allowedIps, actions, WRITE_STATEMENT)) {
+            if (s3Client.updateBucketPolicy(bucketName, clientId, allowedIps, WRITE_ACTIONS, WRITE_STATEMENT)) {
                 System.out.println("Error applying policy bucket: " + bucketName + ", client: " + clientId);
             }
         } catch (AmazonS3Exception e) {
@@ -0,0 +1,109 @@
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Protocol;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one shared AmazonS3 per endpoint, region, credentials and client configuration, so every S3Client for
+ * the same user reuses the same connection pool and TLS sessions. Callers asking for different timeouts or pool
+ * sizes get a client of their own.
+ */
+public class S3ClientRegistry {
+    /**
+     * Region requests are signed for when none is given, the one AmazonS3Client falls back to for custom endpoints
+     */
+    private static final String DEFAULT_SIGNING_REGION = "us-east-1";
+    private static final Map<Key, AmazonS3> CLIENTS = new ConcurrentHashMap<>();
+
+    private S3ClientRegistry() {
+    }
+
+    public static AmazonS3 getClient(String endpoint, String accessKey, String secretKey,
+        ClientConfiguration clientConfig) {
+        return getClient(endpoint, DEFAULT_SIGNING_REGION, accessKey, secretKey, clientConfig);
+    }
+
+    public static AmazonS3 getClient(String endpoint, String region, String accessKey, String secretKey,
+        ClientConfiguration clientConfig) {
+        return CLIENTS.computeIfAbsent(new Key(endpoint, region, accessKey, secretKey, clientConfig), key -> {
+            AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
+            return AmazonS3ClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(credentials))
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, region))
+                .withClientConfiguration(clientConfig)
+                .withRequestHandlers(AdaptiveLimiter.get("s3").newRequestHandler())
+                .build();
+        });
+    }
+
+    public static ClientConfiguration getDefaultClientConfiguration() {
+        return new ClientConfiguration().withProtocol(Protocol.HTTP);
+    }
+
+    public static int size() {
+        return CLIENTS.size();
+    }
+
+    public static void shutdownAll() {
+        CLIENTS.values().forEach(AmazonS3::shutdown);
+        CLIENTS.clear();
+    }
+
+    private static class Key {
+        private final String endpoint;
+        private final String region;
+        private final String accessKey;
+        private final String secretKey;
+        private final List<Object> settings;
+
+        Key(String endpoint, String region, String accessKey, String secretKey, ClientConfiguration clientConfig) {
+            this.endpoint = endpoint;
+            this.region = region;
+            this.accessKey = accessKey;
+            this.secretKey = secretKey;
+            this.settings = getSettings(clientConfig);
+        }
+
+        /**
+         * ClientConfiguration has no equals, so clients are told apart by the settings this project configures
+         */
+        private static List<Object> getSettings(ClientConfiguration clientConfig) {
+            return Arrays.asList(clientConfig.getProtocol(), clientConfig.getMaxConnections(),
+                clientConfig.getConnectionTTL(), clientConfig.getConnectionMaxIdleMillis(),
+                clientConfig.useTcpKeepAlive(), clientConfig.getSocketTimeout(), clientConfig.getConnectionTimeout(),
+                clientConfig.getRequestTimeout(), clientConfig.getClientExecutionTimeout(),
+                clientConfig.getMaxErrorRetry(), Arrays.toString(clientConfig.getSocketBufferSizeHints()));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(endpoint, key.endpoint)
+                && Objects.equals(region, key.region)
+                && Objects.equals(accessKey, key.accessKey)
+                && Objects.equals(secretKey, key.secretKey)
+                && settings.equals(key.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, region, accessKey, secretKey, settings);
+        }
+    }
+}
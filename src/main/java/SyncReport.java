@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of a directory sync: how many keys were uploaded, left unchanged or deleted, and every key that failed.
+ */
+public class SyncReport {
+    private final String bucketName;
+    private final AtomicLong uploaded = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong orphaned = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final ConcurrentLinkedQueue<PurgeReport.Failure> failures = new ConcurrentLinkedQueue<>();
+
+    public SyncReport(String bucketName) {
+        this.bucketName = bucketName;
+    }
+
+    void addUploaded(long bytes) {
+        uploaded.incrementAndGet();
+        uploadedBytes.addAndGet(bytes);
+    }
+
+    void addUnchanged() {
+        unchanged.incrementAndGet();
+    }
+
+    void addOrphaned() {
+        orphaned.incrementAndGet();
+    }
+
+    void addDeleted(PurgeReport report) {
+        deleted.addAndGet(report.getDeleted());
+        failures.addAll(report.getFailures());
+    }
+
+    void addFailure(String key, String code, String message) {
+        failures.add(new PurgeReport.Failure(key, null, code, message));
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public long getUploaded() {
+        return uploaded.get();
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * @return remote keys under the prefix without a local file, whether or not they were deleted
+     */
+    public long getOrphaned() {
+        return orphaned.get();
+    }
+
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    public List<PurgeReport.Failure> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    public void printFailures() {
+        failures.forEach(failure -> System.err.println("\t" + failure));
+    }
+
+    @Override
+    public String toString() {
+        return "Bucket \"" + bucketName + "\": " + uploaded.get() + " uploaded (" + uploadedBytes.get() + " bytes), "
+            + unchanged.get() + " unchanged, " + orphaned.get() + " orphaned, " + deleted.get() + " deleted, "
+            + failures.size() + " failed";
+    }
+}
@@ -0,0 +1,182 @@
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.twonote.rgwadmin4j.model.BucketInfo;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Bucket usage of the whole cluster aggregated per owner, as collected by {@link UsageReporter}. Sizes are the
+ * actual sizes reported by RGW in bytes.
+ */
+public class UsageReport {
+    private final Instant collectedAt = Instant.now();
+    private final ConcurrentLinkedQueue<BucketUsage> buckets = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<PurgeReport.Failure> failures = new ConcurrentLinkedQueue<>();
+
+    void addBucket(BucketInfo bucketInfo) {
+        BucketInfo.Usage usage = bucketInfo.getUsage();
+        BucketInfo.Usage.RgwMain rgwMain = usage == null ? null : usage.getRgwMain();
+        buckets.add(new BucketUsage(bucketInfo.getBucket(), bucketInfo.getOwner(),
+            rgwMain == null ? 0 : valueOf(rgwMain.getSize_actual()),
+            rgwMain == null ? 0 : valueOf(rgwMain.getNum_objects())));
+    }
+
+    void addFailure(String bucketName, String code, String message) {
+        failures.add(new PurgeReport.Failure(bucketName, null, code, message));
+    }
+
+    public List<BucketUsage> getBuckets() {
+        return new ArrayList<>(buckets);
+    }
+
+    public List<OwnerUsage> getOwners() {
+        Map<String, OwnerUsage> owners = new HashMap<>();
+        buckets.forEach(bucket -> owners.computeIfAbsent(bucket.owner, OwnerUsage::new).add(bucket));
+        return new ArrayList<>(owners.values());
+    }
+
+    public List<PurgeReport.Failure> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    public long getTotalSize() {
+        return buckets.stream().mapToLong(BucketUsage::getSize).sum();
+    }
+
+    public long getTotalObjects() {
+        return buckets.stream().mapToLong(BucketUsage::getObjects).sum();
+    }
+
+    /**
+     * @param topN number of buckets and owners listed in every ranking
+     * @return totals, top buckets and owners by size and by object count, and the buckets that could not be read
+     */
+    public JSONObject toJson(int topN) {
+        List<OwnerUsage> owners = getOwners();
+        JSONObject report = new JSONObject();
+        report.put("collected-at", collectedAt.toString());
+        report.put("buckets", buckets.size());
+        report.put("owners", owners.size());
+        report.put("size", getTotalSize());
+        report.put("objects", getTotalObjects());
+        report.put("top-buckets-by-size", top(buckets, BucketUsage::getSize, topN, BucketUsage::toJson));
+        report.put("top-buckets-by-objects", top(buckets, BucketUsage::getObjects, topN, BucketUsage::toJson));
+        report.put("top-owners-by-size", top(owners, OwnerUsage::getSize, topN, OwnerUsage::toJson));
+        report.put("top-owners-by-objects", top(owners, OwnerUsage::getObjects, topN, OwnerUsage::toJson));
+        JSONArray failed = new JSONArray();
+        failures.forEach(failure -> failed.put(new JSONObject()
+            .put("bucket", failure.getKey())
+            .put("code", failure.getCode())
+            .put("message", String.valueOf(failure.getMessage()))));
+        report.put("failures", failed);
+        return report;
+    }
+
+    @Override
+    public String toString() {
+        return buckets.size() + " buckets, " + getTotalSize() + " bytes, " + getTotalObjects() + " objects, "
+            + failures.size() + " failed";
+    }
+
+    private static <T> JSONArray top(Collection<T> values, ToLongFunction<T> metric, int topN,
+        Function<T, JSONObject> toJson) {
+        return new JSONArray(values.stream()
+            .sorted(Comparator.comparingLong(metric).reversed())
+            .limit(topN)
+            .map(toJson)
+            .collect(Collectors.toList()));
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    public static class BucketUsage {
+        private final String bucketName;
+        private final String owner;
+        private final long size;
+        private final long objects;
+
+        BucketUsage(String bucketName, String owner, long size, long objects) {
+            this.bucketName = bucketName;
+            this.owner = owner;
+            this.size = size;
+            this.objects = objects;
+        }
+
+        public String getBucketName() {
+            return bucketName;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getObjects() {
+            return objects;
+        }
+
+        JSONObject toJson() {
+            return new JSONObject()
+                .put("bucket", bucketName)
+                .put("owner", owner)
+                .put("size", size)
+                .put("objects", objects);
+        }
+    }
+
+    public static class OwnerUsage {
+        private final String owner;
+        private int buckets;
+        private long size;
+        private long objects;
+
+        OwnerUsage(String owner) {
+            this.owner = owner;
+        }
+
+        void add(BucketUsage bucket) {
+            buckets++;
+            size += bucket.size;
+            objects += bucket.objects;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public int getBuckets() {
+            return buckets;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getObjects() {
+            return objects;
+        }
+
+        JSONObject toJson() {
+            return new JSONObject()
+                .put("owner", owner)
+                .put("buckets", buckets)
+                .put("size", size)
+                .put("objects", objects);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import com.amazonaws.AbortedException;
+import org.twonote.rgwadmin4j.impl.RgwAdminException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the usage of every bucket in the cluster with at most {@code parallelism} bucket info requests in
+ * flight, so the report takes about bucket count / parallelism round trips instead of one per bucket.
+ */
+public class UsageReporter {
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    private final RgwAdminClient adminClient;
+    private final int parallelism;
+
+    public UsageReporter(RgwAdminClient adminClient) {
+        this(adminClient, DEFAULT_PARALLELISM);
+    }
+
+    public UsageReporter(RgwAdminClient adminClient, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.adminClient = adminClient;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Writes the usage report as JSON, for scheduled capacity reports. Arguments use the form
+     * {@code --name=value}: {@code user} admin user from the local config (default "nano"), {@code top} size of
+     * every ranking (default 20), {@code parallelism} (default 16) and {@code output} file (default stdout).
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid argument \"" + arg + "\", expected --name=value");
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        LocalConfig config = new LocalConfig(DebugMenu.CONFIG_LOCATION);
+        RgwAdminClient adminClient = DebugMenu.getRgwAdmin(options.getOrDefault("user", "nano"), config);
+        UsageReport report = new UsageReporter(adminClient,
+            Integer.parseInt(options.getOrDefault("parallelism", String.valueOf(DEFAULT_PARALLELISM)))).collect();
+        String json = report.toJson(Integer.parseInt(options.getOrDefault("top", "20"))).toString(2);
+        if (options.containsKey("output")) {
+            Files.write(Paths.get(options.get("output")), json.getBytes(StandardCharsets.UTF_8));
+        } else {
+            System.out.println(json);
+        }
+    }
+
+    public UsageReport collect() {
+        List<String> bucketNames = adminClient.getBucketList();
+        UsageReport report = new UsageReport();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            bucketNames.forEach(bucketName -> executor.execute(() -> {
+                try {
+                    report.addBucket(adminClient.getBucketInfo(bucketName));
+                } catch (RgwAdminException e) {
+                    report.addFailure(bucketName, String.valueOf(e.status()), e.getMessage());
+                } catch (NoSuchElementException e) {
+                    report.addFailure(bucketName, "NoSuchBucket", "Bucket was removed while collecting usage");
+                } catch (RuntimeException e) {
+                    report.addFailure(bucketName, "ClientError", e.getMessage());
+                }
+            }));
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Usage collection was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        return report;
+    }
+}